@@ -0,0 +1,12 @@
+-- One-off migration for databases created before the composite outbox indexes.
+--
+-- ddl-auto: update creates idx_outbox_pending / idx_outbox_published_created /
+-- idx_published_at but never drops the indexes they replaced. Left behind, those
+-- are maintained on every outbox INSERT/UPDATE, and the optimizer may still pick the
+-- low-selectivity idx_published for the publisher poll.
+--
+-- Run once per database, e.g. in the H2 console at /h2-console. New databases
+-- never had these indexes, so this is a no-op there.
+
+DROP INDEX IF EXISTS idx_published;
+DROP INDEX IF EXISTS idx_created_at;
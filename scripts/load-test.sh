@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+#
+# Fire N credit application submissions with C of them in flight at once,
+# then print the wall-clock time and the HTTP status counts.
+#
+# Usage: scripts/load-test.sh [total] [concurrency] [base-url]
+#   scripts/load-test.sh 1000 1000            # 1k concurrent submissions
+#
+# Compare platform vs virtual threads (same machine, fresh app each run):
+#   mvn spring-boot:run
+#   mvn -Pjava21 spring-boot:run -Dspring-boot.run.profiles=virtual-threads
+
+set -euo pipefail
+
+TOTAL=${1:-1000}
+CONCURRENCY=${2:-1000}
+BASE_URL=${3:-http://localhost:8080}
+
+submit() {
+  curl -s -o /dev/null -w "%{http_code}\n" -X POST "$BASE_URL/api/applications" \
+    -H "Content-Type: application/json" \
+    -d "{\"customerId\": \"LOAD-$1\", \"requestedAmount\": 50000, \"creditScore\": 720, \"annualIncome\": 80000}"
+}
+export -f submit
+export BASE_URL
+
+echo "Submitting $TOTAL applications, $CONCURRENCY concurrent, to $BASE_URL"
+START=$(date +%s%N)
+seq 1 "$TOTAL" | xargs -P "$CONCURRENCY" -I{} bash -c 'submit {}' | sort | uniq -c
+END=$(date +%s%N)
+
+ELAPSED_MS=$(( (END - START) / 1000000 ))
+echo "Elapsed: ${ELAPSED_MS} ms ($(( TOTAL * 1000 / (ELAPSED_MS > 0 ? ELAPSED_MS : 1) )) submissions/s)"
@@ -0,0 +1,27 @@
+package com.creditrisk.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client for the external credit bureau (the slow enrichment step of a risk assessment).
+ *
+ * NON-BLOCKING BY CONTRACT:
+ * =========================
+ * fetchReport() returns immediately with a CompletableFuture, so a consumer can
+ * have MANY lookups in flight at once instead of blocking one thread per lookup.
+ * Implementations must not block the calling thread.
+ *
+ * Pluggable: select the implementation with credit-bureau.client
+ * (only "stub" exists in this project - see StubCreditBureauClient).
+ */
+public interface CreditBureauClient {
+
+    /**
+     * Request the bureau report for an application.
+     *
+     * @param applicationId Application being assessed (for correlation/logging)
+     * @param customerId Customer to look up
+     * @return Future that completes with the report, or exceptionally if the lookup failed
+     */
+    CompletableFuture<CreditBureauReport> fetchReport(String applicationId, String customerId);
+}
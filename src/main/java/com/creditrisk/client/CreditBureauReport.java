@@ -0,0 +1,18 @@
+package com.creditrisk.client;
+
+import java.time.Instant;
+
+/**
+ * Result of a credit bureau lookup.
+ *
+ * @param customerId Customer the report is about
+ * @param creditScore Score reported by the bureau, or null if the bureau has none
+ *                    (the score declared in the application is used then)
+ * @param retrievedAt When the bureau answered
+ */
+public record CreditBureauReport(
+    String customerId,
+    Integer creditScore,
+    Instant retrievedAt
+) {
+}
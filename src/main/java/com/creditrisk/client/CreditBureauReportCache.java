@@ -0,0 +1,94 @@
+package com.creditrisk.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CACHE IN FRONT OF THE CREDIT BUREAU
+ * ===================================
+ *
+ * The bureau lookup is the slow step of a risk assessment (seconds), and the same
+ * customer often applies several times (different amounts, retries, resubmissions).
+ * Every one of those applications used to pay the full bureau latency again.
+ *
+ * Reports are cached PER CUSTOMER (the bureau's input - the applicant's amounts and
+ * declared score don't change the report):
+ * - Bounded (credit-bureau.cache.max-size), evicted by Caffeine's W-TinyLFU
+ *   (frequency + recency: a burst of one-off customers can't flush the regulars)
+ * - Expire after credit-bureau.cache.ttl-minutes (a report is a snapshot; it ages)
+ * - ASYNC cache: concurrent applications of one customer share ONE lookup in flight
+ * - Failed lookups are not cached (Caffeine drops futures that complete exceptionally)
+ *
+ * Scoring results are NOT cached: the compiled rules (RiskScoringEngine) take a few
+ * integer comparisons, less than a cache lookup would.
+ *
+ * METRICS (/actuator/metrics):
+ * - cache.gets{cache=creditBureauReports,result=hit|miss}, cache.size, cache.evictions
+ * - credit.bureau.lookup: latency of real bureau lookups (misses)
+ * - credit.bureau.cache.latency.saved: hits x mean lookup latency (seconds)
+ *
+ * Disabled (credit-bureau.cache.enabled=false): every call goes to the bureau.
+ */
+@Component
+@Slf4j
+public class CreditBureauReportCache {
+
+    private final CreditBureauClient creditBureauClient;
+    private final boolean enabled;
+    private final AsyncCache<String, CreditBureauReport> reports;
+    private final Timer lookupTimer;
+
+    public CreditBureauReportCache(CreditBureauClient creditBureauClient,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${credit-bureau.cache.enabled:false}") boolean enabled,
+                                   @Value("${credit-bureau.cache.max-size:100000}") long maxSize,
+                                   @Value("${credit-bureau.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.creditBureauClient = creditBureauClient;
+        this.enabled = enabled;
+        this.reports = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        this.lookupTimer = meterRegistry.timer("credit.bureau.lookup");
+
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, reports.synchronous(), "creditBureauReports");
+            Gauge.builder("credit.bureau.cache.latency.saved",
+                            () -> reports.synchronous().stats().hitCount() * lookupTimer.mean(TimeUnit.SECONDS))
+                    .description("Bureau latency avoided by cache hits")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * The customer's bureau report: from the cache, from a lookup already in flight,
+     * or from a new lookup.
+     *
+     * @return A future of its own per caller (a caller's timeout doesn't fail the shared lookup)
+     */
+    public CompletableFuture<CreditBureauReport> fetchReport(String applicationId, String customerId) {
+        if (!enabled || customerId == null) {
+            return timedLookup(applicationId, customerId);
+        }
+        return reports.get(customerId, (key, executor) -> timedLookup(applicationId, key)).copy();
+    }
+
+    private CompletableFuture<CreditBureauReport> timedLookup(String applicationId, String customerId) {
+        long start = System.nanoTime();
+        return creditBureauClient.fetchReport(applicationId, customerId)
+                .whenComplete((report, error) -> lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,39 @@
+package com.creditrisk.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the credit bureau.
+ *
+ * Simulates the bureau's latency (credit-bureau.stub.latency-ms, default 2s) WITHOUT
+ * holding a thread: the report is completed by a delayed executor, like a real
+ * non-blocking HTTP client completes its future when the response arrives.
+ *
+ * It has no data of its own: the report has no score, so the score declared
+ * in the application is used (same results as before the client existed).
+ */
+@Component
+@ConditionalOnProperty(name = "credit-bureau.client", havingValue = "stub", matchIfMissing = true)
+@Slf4j
+public class StubCreditBureauClient implements CreditBureauClient {
+
+    private final Executor delayedExecutor;
+
+    public StubCreditBureauClient(@Value("${credit-bureau.stub.latency-ms:2000}") long latencyMs) {
+        this.delayedExecutor = CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<CreditBureauReport> fetchReport(String applicationId, String customerId) {
+        log.debug("Requesting credit bureau report for application: {}", applicationId);
+        return CompletableFuture.supplyAsync(() -> new CreditBureauReport(customerId, null, Instant.now()), delayedExecutor);
+    }
+}
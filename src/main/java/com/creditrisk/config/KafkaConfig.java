@@ -1,17 +1,22 @@
 package com.creditrisk.config;
 
+import com.creditrisk.consumer.EventInFlightException;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,6 +35,26 @@ import java.util.Map;
  * PRODUCER CONFIG:
  * - Key: String (topic name)
  * - Value: Our event objects (serialized as JSON)
+ * - Raw producer: Value is already-serialized JSON bytes from the outbox (no re-serialization)
+ *
+ * TRANSACTIONAL MODE (opt-in, outbox.publisher.transactional=true):
+ * - Producers get a transactional.id prefix (implies idempotence + acks=all)
+ * - The prefix must be set explicitly (outbox.publisher.transaction-id-prefix) and be
+ *   STABLE across restarts and distinct per instance (e.g. the pod name): after a
+ *   restart, the new producer reuses the old transactional.id, so the broker aborts
+ *   the old instance's open transaction and fences a zombie still running with it.
+ *   A random prefix would defeat that, so startup fails if the prefix is missing.
+ * - The outbox publisher commits each batch to Kafka atomically (all or nothing);
+ *   delivery stays at-least-once (see OutboxEventPublisher.sendInKafkaTransaction)
+ * - Consumers read with isolation.level=read_committed (aborted batches are never seen)
+ * - Works against a single local broker as long as the transaction state log
+ *   replication factor is 1 (see docker-compose.yml)
+ *
+ * ERROR HANDLING (DefaultErrorHandler, both container factories):
+ * - A failed record is retried in place (seek + redeliver), then logged and skipped
+ * - EventInFlightException (another consumer's transaction holds the idempotency claim)
+ *   is retried every consumer.in-flight-retry-ms without limit - the claim's lease
+ *   (idempotency.claim-lease-ms) bounds how long that can take
  *
  * CONSUMER CONFIG:
  * - Group ID: Multiple consumers with same group ID share the workload
@@ -40,9 +65,34 @@ import java.util.Map;
 @EnableKafka
 public class KafkaConfig {
 
+    // Max time send() may block waiting for buffer space or metadata
+    private static final int PRODUCER_MAX_BLOCK_MS = 5000;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${outbox.publisher.transactional:false}")
+    private boolean transactional;
+
+    // Stable per instance (survives restarts), distinct between instances; required in transactional mode
+    @Value("${outbox.publisher.transaction-id-prefix:}")
+    private String transactionIdPrefix;
+
+    // Run listener containers on virtual threads (Java 21, "virtual-threads" profile)
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Records per poll (= per transaction) for batch listeners
+    @Value("${consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    // Redelivery interval for events another consumer is still processing
+    @Value("${consumer.in-flight-retry-ms:5000}")
+    private long inFlightRetryMs;
+
+    // Other failures: immediate retries before the record is logged and skipped (Spring's default)
+    private static final long MAX_FAILED_ATTEMPTS = 9;
+
     // ==================== PRODUCER CONFIGURATION ====================
 
     /**
@@ -58,7 +108,11 @@ public class KafkaConfig {
         // Add type information to JSON (needed for deserialization)
         config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, true);
 
-        return new DefaultKafkaProducerFactory<>(config);
+        // Fail fast when the send buffer is full (default blocks for 60s).
+        // The outbox publisher treats the failure as backpressure and shrinks its batch.
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, PRODUCER_MAX_BLOCK_MS);
+
+        return createProducerFactory(config, "typed-");
     }
 
     /**
@@ -67,7 +121,69 @@ public class KafkaConfig {
      */
     @Bean
     public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory());
+        // In transactional mode, sends outside executeInTransaction() use a non-transactional producer
+        template.setAllowNonTransactional(true);
+        return template;
+    }
+
+    /**
+     * Producer for payloads that are ALREADY serialized (outbox rows).
+     *
+     * The outbox stores each event as JSON, so the publisher can send those bytes
+     * directly instead of deserializing and re-serializing them with Jackson.
+     * The type header that JsonSerializer would normally add is set per record
+     * by EventProducer, so consumers deserialize into the same records as before.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> rawProducerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, PRODUCER_MAX_BLOCK_MS);
+
+        // Outbox batches are sent back-to-back: wait a few ms so records share network batches
+        config.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+
+        return createProducerFactory(config, "raw-");
+    }
+
+    /**
+     * KafkaTemplate for sending pre-serialized outbox payloads.
+     */
+    @Bean
+    public KafkaTemplate<String, byte[]> rawKafkaTemplate() {
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(rawProducerFactory());
+        template.setAllowNonTransactional(true);
+        return template;
+    }
+
+    /**
+     * Create a producer factory; idempotent and transactional when transactional mode is on.
+     */
+    private <V> ProducerFactory<String, V> createProducerFactory(Map<String, Object> config, String suffix) {
+        if (transactional) {
+            config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+            config.put(ProducerConfig.ACKS_CONFIG, "all");
+        }
+
+        DefaultKafkaProducerFactory<String, V> factory = new DefaultKafkaProducerFactory<>(config);
+        if (transactional) {
+            factory.setTransactionIdPrefix(requireTransactionIdPrefix() + suffix);
+        }
+        return factory;
+    }
+
+    /**
+     * Fail startup instead of falling back to a random prefix (no zombie fencing).
+     */
+    private String requireTransactionIdPrefix() {
+        if (transactionIdPrefix == null || transactionIdPrefix.isBlank()) {
+            throw new IllegalStateException("outbox.publisher.transactional=true requires a stable, per-instance "
+                    + "outbox.publisher.transaction-id-prefix (e.g. OUTBOX_TRANSACTION_ID_PREFIX=credit-risk-node-1-)");
+        }
+        return transactionIdPrefix;
     }
 
     // ==================== CONSUMER CONFIGURATION ====================
@@ -77,6 +193,10 @@ public class KafkaConfig {
      */
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
+        return new DefaultKafkaConsumerFactory<>(consumerConfig());
+    }
+
+    private Map<String, Object> consumerConfig() {
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, "credit-risk-group");
@@ -89,7 +209,12 @@ public class KafkaConfig {
         // If consumer starts and has no previous offset, start from the beginning
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
-        return new DefaultKafkaConsumerFactory<>(config);
+        // Transactional mode: never deliver records from aborted outbox batches
+        if (transactional) {
+            config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        }
+
+        return config;
     }
 
     /**
@@ -99,6 +224,8 @@ public class KafkaConfig {
      * - setConcurrency(3) means 3 threads will process messages in parallel
      * - More threads = faster processing BUT more CPU usage
      * - In production, tune this based on your workload
+     * - Threads beyond the partition count sit idle; to go past it without
+     *   repartitioning, use consumer.risk-assessment.mode=parallel (parallel per key)
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
@@ -108,7 +235,75 @@ public class KafkaConfig {
 
         // Process messages in 3 parallel threads
         factory.setConcurrency(3);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
+        useVirtualThreads(factory);
+
+        return factory;
+    }
+
+    /**
+     * Container factory for BATCH listeners (List<Event> parameter).
+     *
+     * The listener gets the whole poll (up to max.poll.records) at once, so it can
+     * process it in ONE database transaction with JDBC batching instead of one
+     * transaction per record. Used when consumer.risk-assessment.mode is batch or parallel.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        Map<String, Object> config = consumerConfig();
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        factory.setBatchListener(true);
+        factory.setConcurrency(3);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
+        useVirtualThreads(factory);
 
         return factory;
     }
+
+    /**
+     * Error handler shared by both container factories (see ERROR HANDLING above).
+     *
+     * Batch listeners must throw BatchListenerFailedException for the backoff function
+     * to apply; the failed record's cause is looked up through the exception chain.
+     */
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler() {
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(new FixedBackOff(0L, MAX_FAILED_ATTEMPTS));
+        errorHandler.setBackOffFunction((record, exception) -> isInFlight(exception)
+                ? new FixedBackOff(inFlightRetryMs, FixedBackOff.UNLIMITED_ATTEMPTS)
+                : null); // null = the default back off above
+        // A record that was in flight and then fails for real starts a fresh retry count
+        errorHandler.setResetStateOnExceptionChange(true);
+        return errorHandler;
+    }
+
+    private static boolean isInFlight(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof EventInFlightException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * VIRTUAL THREADS (Java 21):
+     * Each listener container runs its poll loop on a virtual thread instead of
+     * a platform thread. Blocking JPA, Redis and bureau calls then park the virtual
+     * thread and free the OS thread underneath.
+     *
+     * Only when spring.threads.virtual.enabled=true (profile "virtual-threads");
+     * on Java 17 SimpleAsyncTaskExecutor can't create virtual threads.
+     */
+    private void useVirtualThreads(ConcurrentKafkaListenerContainerFactory<String, Object> factory) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
 }
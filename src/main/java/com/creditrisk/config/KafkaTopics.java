@@ -19,6 +19,9 @@ public class KafkaTopics {
     // Topic for final credit decisions
     public static final String CREDIT_DECISION_MADE = "credit.decision.made";
 
+    // Dead-letter topic for outbox events that failed to publish too many times
+    public static final String OUTBOX_DEAD_LETTER = "outbox.dead-letter";
+
     // Private constructor to prevent instantiation
     private KafkaTopics() {
     }
@@ -0,0 +1,38 @@
+package com.creditrisk.config;
+
+import com.creditrisk.scoring.model.RiskModel;
+import com.creditrisk.scoring.model.RiskModelLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+/**
+ * Risk model configuration (optional ML scoring stage).
+ *
+ * With risk-model.enabled=true the built-in model is loaded from risk-model.location
+ * (JSON, see RiskModelLoader). A model file that fails to load stops the startup -
+ * better than silently scoring without it.
+ *
+ * An application-defined RiskModel bean is used as it is with risk-model.enabled=false.
+ * To keep both beans, mark yours @Primary; two RiskModel beans without a primary one
+ * stop the startup (RiskModelScorer) instead of depending on bean registration order.
+ */
+@Configuration
+@Slf4j
+public class RiskModelConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "risk-model.enabled", havingValue = "true")
+    public RiskModel fileRiskModel(@Value("${risk-model.location:classpath:risk-model.json}") Resource location,
+                                   ObjectMapper objectMapper) throws IOException {
+        RiskModel model = RiskModelLoader.load(location, objectMapper);
+        log.info("Loaded risk model {} from {}", model.name(), location);
+        return model;
+    }
+}
@@ -6,8 +6,10 @@ import com.creditrisk.model.CreditApplication;
 import com.creditrisk.model.DecisionStatus;
 import com.creditrisk.model.RiskLevel;
 import com.creditrisk.repository.CreditApplicationRepository;
+import com.creditrisk.scoring.RiskRuleStore;
 import com.creditrisk.service.ApplicationService;
 import com.creditrisk.service.IdempotencyService;
+import com.creditrisk.service.IdempotencyService.AcquireResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -42,6 +44,7 @@ public class DecisionConsumer {
     private final IdempotencyService idempotencyService;
     private final CreditApplicationRepository applicationRepository;
     private final ApplicationService applicationService;
+    private final RiskRuleStore riskRuleStore;
 
     /**
      * Process risk assessment and make final decision.
@@ -75,8 +78,14 @@ public class DecisionConsumer {
         // ==================== REDIS-BASED IDEMPOTENCY CHECK ====================
         // Use assessmentId as the unique event identifier
         // Using Redis for 50-100x faster idempotency checks compared to database
-        if (!idempotencyService.tryAcquire("RiskAssessmentCompleted",
-                event.assessmentId(), "DecisionConsumer")) {
+        // Claim is completed on commit and released on rollback (redelivery is then processed)
+        AcquireResult claim = idempotencyService.claimForTransaction("RiskAssessmentCompleted",
+                event.assessmentId(), "DecisionConsumer");
+        if (claim == AcquireResult.IN_FLIGHT) {
+            // Another consumer's transaction may still roll back: redeliver after a backoff, don't skip
+            throw new EventInFlightException("RiskAssessmentCompleted", event.assessmentId());
+        }
+        if (claim == AcquireResult.DUPLICATE) {
             log.warn("Event already processed, skipping: {}", event.assessmentId());
             return;
         }
@@ -112,17 +121,13 @@ public class DecisionConsumer {
     /**
      * Determine final decision based on risk level.
      *
-     * Decision rules (simplified):
+     * Decision rules (from the rule file, see RiskRuleStore; defaults):
      * - LOW risk -> Auto-approve
      * - MEDIUM risk -> Manual review
      * - HIGH risk -> Auto-reject
      * - CRITICAL risk -> Auto-reject
      */
     private DecisionStatus determineDecision(RiskLevel riskLevel) {
-        return switch (riskLevel) {
-            case LOW -> DecisionStatus.APPROVED;
-            case MEDIUM -> DecisionStatus.MANUAL_REVIEW;
-            case HIGH, CRITICAL -> DecisionStatus.REJECTED;
-        };
+        return riskRuleStore.current().decisionFor(riskLevel);
     }
 }
@@ -0,0 +1,19 @@
+package com.creditrisk.consumer;
+
+/**
+ * Thrown when an event is claimed by another consumer whose transaction has not
+ * finished yet (IdempotencyService.AcquireResult.IN_FLIGHT).
+ *
+ * WHY NOT JUST SKIP IT?
+ * =====================
+ * If that other transaction rolls back, its claim is released - and a record we
+ * skipped would be lost for good. So the listener fails instead: the error handler
+ * (KafkaConfig) backs off and redelivers the record until the claim is completed
+ * (DUPLICATE - skipped) or released / expired (ACQUIRED - processed here).
+ */
+public class EventInFlightException extends RuntimeException {
+
+    public EventInFlightException(String eventType, String eventId) {
+        super("Event " + eventType + ":" + eventId + " is being processed by another consumer, retrying later");
+    }
+}
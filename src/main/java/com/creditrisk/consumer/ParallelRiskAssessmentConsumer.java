@@ -0,0 +1,133 @@
+package com.creditrisk.consumer;
+
+import com.creditrisk.config.KafkaTopics;
+import com.creditrisk.event.CreditApplicationSubmitted;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * KEY-ORDERED PARALLEL PROCESSING (consumer.risk-assessment.mode=parallel)
+ * =========================================================================
+ *
+ * With one listener thread per partition, parallelism is capped at the partition
+ * count: inside a partition every record waits for the one before it, even when
+ * the two records belong to DIFFERENT applications and don't depend on each other.
+ *
+ * Kafka only promises order PER KEY (the key is the applicationId), so that is all
+ * we have to keep. In the style of Confluent's parallel consumer, each poll is:
+ * 1. Grouped by key (records of one key keep their offset order)
+ * 2. Each key runs on a worker thread: its records one after another,
+ *    different keys at the same time (up to consumer.parallel.max-concurrency)
+ * 3. The listener thread waits for all keys, THEN the container commits the offsets
+ *
+ * Every record is still processed by RiskAssessmentConsumer.processApplication(),
+ * in its own transaction with its own idempotency claim - nothing about the
+ * per-record guarantees changes, only how many records run at once.
+ * Throughput scales with the number of distinct keys instead of the number of partitions.
+ *
+ * OFFSETS ONLY ADVANCE PAST COMPLETED RECORDS:
+ * ============================================
+ * If a record fails, the rest of ITS key is not processed (that would break the key's
+ * order), other keys finish. Then a BatchListenerFailedException names the LOWEST failed
+ * position of the poll: the error handler commits the offsets BEFORE it and seeks back
+ * to it. Records after it that did complete are redelivered too, but their idempotency
+ * claims were completed on commit, so they are skipped as duplicates.
+ */
+@Service
+@Slf4j
+public class ParallelRiskAssessmentConsumer {
+
+    private final RiskAssessmentConsumer riskAssessmentConsumer;
+    private final ExecutorService workers;
+
+    public ParallelRiskAssessmentConsumer(RiskAssessmentConsumer riskAssessmentConsumer,
+                                          @Value("${consumer.parallel.max-concurrency:16}") int maxConcurrency) {
+        this.riskAssessmentConsumer = riskAssessmentConsumer;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "risk-parallel-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdown();
+    }
+
+    /**
+     * Process one poll concurrently across keys, sequentially within a key.
+     */
+    @KafkaListener(
+            topics = KafkaTopics.CREDIT_APPLICATION_SUBMITTED,
+            groupId = "risk-assessment-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${consumer.risk-assessment.mode:single}' == 'parallel'}"
+    )
+    public void processApplications(List<ConsumerRecord<String, CreditApplicationSubmitted>> records) {
+        // Positions in the poll per key, in offset order
+        Map<String, List<Integer>> positionsByKey = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            positionsByKey.computeIfAbsent(keyOf(records.get(i)), key -> new ArrayList<>()).add(i);
+        }
+
+        log.debug("Processing {} records across {} keys in parallel", records.size(), positionsByKey.size());
+
+        // Lowest failed position of the poll (records.size() = nothing failed)
+        AtomicInteger firstFailure = new AtomicInteger(records.size());
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+
+        List<CompletableFuture<Void>> keys = new ArrayList<>(positionsByKey.size());
+        for (List<Integer> positions : positionsByKey.values()) {
+            keys.add(CompletableFuture.runAsync(() -> {
+                for (int position : positions) {
+                    try {
+                        riskAssessmentConsumer.processApplication(records.get(position).value());
+                    } catch (Exception e) {
+                        // Stop this key here: its later records must not overtake the failed one
+                        synchronized (failures) {
+                            failures.put(position, e);
+                        }
+                        firstFailure.accumulateAndGet(position, Math::min);
+                        return;
+                    }
+                }
+            }, workers));
+        }
+
+        // Offsets are committed only after this returns, i.e. after every key finished
+        CompletableFuture.allOf(keys.toArray(CompletableFuture[]::new)).join();
+
+        int failedPosition = firstFailure.get();
+        if (failedPosition < records.size()) {
+            ConsumerRecord<String, CreditApplicationSubmitted> failed = records.get(failedPosition);
+            log.error("{} of {} records failed, committing offsets before partition {} offset {}",
+                    failures.size(), records.size(), failed.partition(), failed.offset());
+            throw new BatchListenerFailedException("Risk assessment failed for key " + keyOf(failed),
+                    failures.get(failedPosition), failedPosition);
+        }
+    }
+
+    /**
+     * The record key is the applicationId (see EventProducer); fall back to the payload.
+     */
+    private static String keyOf(ConsumerRecord<String, CreditApplicationSubmitted> record) {
+        return record.key() != null ? record.key() : record.value().applicationId();
+    }
+}
@@ -1,5 +1,7 @@
 package com.creditrisk.consumer;
 
+import com.creditrisk.client.CreditBureauReport;
+import com.creditrisk.client.CreditBureauReportCache;
 import com.creditrisk.config.KafkaTopics;
 import com.creditrisk.event.CreditApplicationSubmitted;
 import com.creditrisk.event.RiskAssessmentCompleted;
@@ -7,19 +9,46 @@ import com.creditrisk.model.*;
 import com.creditrisk.repository.CreditApplicationRepository;
 import com.creditrisk.repository.OutboxEventRepository;
 import com.creditrisk.repository.RiskAssessmentRepository;
+import com.creditrisk.scoring.CompiledRiskRules;
+import com.creditrisk.scoring.RiskRuleStore;
+import com.creditrisk.scoring.RiskScoringEngine;
+import com.creditrisk.scoring.model.RiskModelInput;
+import com.creditrisk.scoring.model.RiskModelScorer;
 import com.creditrisk.service.ApplicationService;
 import com.creditrisk.service.IdempotencyService;
+import com.creditrisk.service.IdempotencyService.AcquireResult;
+import com.creditrisk.service.IdempotencyService.BatchClaim;
+import com.creditrisk.service.OutboxEventSaved;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Consumer that processes credit applications and performs risk assessment.
@@ -75,6 +104,22 @@ public class RiskAssessmentConsumer {
     private final OutboxEventRepository outboxEventRepository;
     private final ApplicationService applicationService;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CreditBureauReportCache creditBureauReports;
+    private final RiskScoringEngine riskScoringEngine;
+    private final RiskRuleStore riskRuleStore;
+    private final RiskModelScorer riskModelScorer;
+    private final TransactionTemplate transactionTemplate;
+
+    // Max bureau lookups outstanding per listener thread
+    @Value("${credit-bureau.max-in-flight:64}")
+    private int bureauMaxInFlight;
+
+    @Value("${credit-bureau.timeout-ms:10000}")
+    private long bureauTimeoutMs;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Kafka listener method.
@@ -85,6 +130,7 @@ public class RiskAssessmentConsumer {
      * - Spring automatically calls this method when a new message arrives
      * - The method runs on a background thread (NOT the REST API thread)
      * - Multiple instances can run in parallel (see concurrency in KafkaConfig)
+     * - Also called by ParallelRiskAssessmentConsumer (mode=parallel), once per record
      *
      * Parameters:
      * - topics: Which topic to listen to
@@ -94,7 +140,8 @@ public class RiskAssessmentConsumer {
     @KafkaListener(
             topics = KafkaTopics.CREDIT_APPLICATION_SUBMITTED,
             groupId = "risk-assessment-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{'${consumer.risk-assessment.mode:single}' == 'single'}"
     )
     @Transactional
     public void processApplication(CreditApplicationSubmitted event) {
@@ -103,39 +150,34 @@ public class RiskAssessmentConsumer {
         // ==================== REDIS-BASED IDEMPOTENCY CHECK ====================
         // CRITICAL: Check if we've already processed this event
         // Using Redis for 50-100x faster idempotency checks compared to database
-        if (!idempotencyService.tryAcquire("CreditApplicationSubmitted",
-                event.applicationId(), "RiskAssessmentConsumer")) {
+        // Claim is completed on commit and released on rollback (redelivery is then processed)
+        AcquireResult claim = idempotencyService.claimForTransaction("CreditApplicationSubmitted",
+                event.applicationId(), "RiskAssessmentConsumer");
+        if (claim == AcquireResult.IN_FLIGHT) {
+            // Another consumer's transaction may still roll back: redeliver after a backoff, don't skip
+            throw new EventInFlightException("CreditApplicationSubmitted", event.applicationId());
+        }
+        if (claim == AcquireResult.DUPLICATE) {
             log.warn("Event already processed, skipping: {}", event.applicationId());
             return; // Exit early - don't process again!
         }
 
         log.info("Starting risk assessment for application: {}", event.applicationId());
 
-        // ==================== SIMULATE ASYNC WORK ====================
+        // ==================== EXTERNAL ENRICHMENT ====================
         // In real systems, this might:
         // - Call external credit bureau APIs
         // - Run ML models
         // - Query fraud detection services
         // - Take several seconds
-        try {
-            Thread.sleep(2000); // Simulate 2 seconds of processing
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // One record at a time here, so we wait for it (the batch listener overlaps the calls)
+        Map<String, CreditBureauReport> reports = fetchReports(List.of(event));
 
         // ==================== PERFORM RISK ASSESSMENT ====================
-        RiskLevel riskLevel = calculateRiskLevel(event.creditScore(), event.annualIncome(), event.requestedAmount());
-        BigDecimal riskScore = calculateRiskScore(event.creditScore(), event.annualIncome(), event.requestedAmount());
-        String notes = generateAssessmentNotes(riskLevel, event);
+        // Rules for the level, the risk model (if configured) for the score
+        RiskAssessment assessment = assessAll(List.of(event), reports).get(0);
 
         // Save assessment to database
-        String assessmentId = UUID.randomUUID().toString();
-        RiskAssessment assessment = new RiskAssessment();
-        assessment.setAssessmentId(assessmentId);
-        assessment.setApplicationId(event.applicationId());
-        assessment.setRiskLevel(riskLevel);
-        assessment.setRiskScore(riskScore);
-        assessment.setAssessmentNotes(notes);
         riskAssessmentRepository.save(assessment);
 
         // Update application status
@@ -149,25 +191,282 @@ public class RiskAssessmentConsumer {
         log.debug("Evicted cache for application after status update: {}", event.applicationId());
 
         log.info("Risk assessment completed for application: {} with risk level: {}",
-                event.applicationId(), riskLevel);
+                event.applicationId(), assessment.getRiskLevel());
 
         // ==================== SAVE RESULT EVENT TO OUTBOX ====================
-        // Create event and save to outbox (instead of publishing directly to Kafka)
+        // Save to outbox table (SAME transaction as risk assessment save!)
+        saveResultToOutbox(assessment);
+    }
+
+    /**
+     * BATCH variant of processApplication() (consumer.risk-assessment.mode=batch).
+     *
+     * ONE TRANSACTION PER POLL:
+     * =========================
+     * The single-record listener does, PER EVENT: an assessment INSERT, a SELECT of
+     * the application, an UPDATE, an outbox INSERT - and a commit. Here a whole poll
+     * (up to consumer.batch.max-poll-records) is processed together:
+     * - Idempotency: all claims in ONE Redis round trip (claimAllForTransaction)
+     * - ONE multi-row SELECT for all applications of the batch
+     * - Assessment INSERTs and application UPDATEs are sent as JDBC batches
+     *   (hibernate.jdbc.batch_size + order_inserts/order_updates in application.yml)
+     * - ONE commit for the whole batch
+     *
+     * Only one listener starts (autoStartup, see consumer.risk-assessment.mode), all use
+     * the same consumer group. ParallelRiskAssessmentConsumer is the third variant.
+     *
+     * FAILURE HANDLING:
+     * =================
+     * Any exception rolls back the WHOLE transaction (and releases all its idempotency
+     * claims), so nothing is half-processed. What happens next depends on the failure:
+     *
+     * - ONE APPLICATION fails (bureau lookup error/timeout, invalid amounts, application
+     *   not found): the records BEFORE it in the poll are processed again in a new
+     *   transaction and committed, then BatchListenerFailedException names the failed
+     *   record's index. DefaultErrorHandler commits the offsets before it and retries
+     *   from the failed record - after MAX_FAILED_ATTEMPTS only THAT record is logged
+     *   and skipped, exactly like in the single-record listener. Without the index the
+     *   handler would retry the whole poll and then skip every record in it.
+     * - Events still IN FLIGHT in another consumer: index 0, so no offset advances and
+     *   the whole poll is retried after a backoff.
+     * - Anything else (e.g. the risk model failing for the whole poll) fails the batch.
+     */
+    @KafkaListener(
+            topics = KafkaTopics.CREDIT_APPLICATION_SUBMITTED,
+            groupId = "risk-assessment-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${consumer.risk-assessment.mode:single}' == 'batch'}"
+    )
+    public void processApplications(List<CreditApplicationSubmitted> events) {
+        int end = events.size();
+        ApplicationFailedException failure = null;
+
+        while (end > 0) {
+            List<CreditApplicationSubmitted> batch = events.subList(0, end);
+            try {
+                transactionTemplate.executeWithoutResult(status -> processBatch(batch));
+                break;
+            } catch (ApplicationFailedException e) {
+                // Rolled back: commit what comes before the failed record, then report it
+                failure = e;
+                end = firstIndexOf(events, e.applicationId);
+            }
+        }
+
+        if (failure != null) {
+            int index = firstIndexOf(events, failure.applicationId);
+            log.warn("Committed {} of {} events of the batch, application {} failed: {}",
+                    index, events.size(), failure.applicationId, failure.getCause().getMessage());
+            throw new BatchListenerFailedException(failure.getMessage(), failure.getCause(), index);
+        }
+    }
+
+    /**
+     * Process one batch in the CURRENT transaction.
+     *
+     * @throws ApplicationFailedException if one application of the batch can't be processed
+     */
+    private void processBatch(List<CreditApplicationSubmitted> events) {
+        // First delivery wins for duplicates INSIDE the poll (same applicationId twice)
+        Map<String, CreditApplicationSubmitted> eventsById = new LinkedHashMap<>();
+        events.forEach(event -> eventsById.putIfAbsent(event.applicationId(), event));
+
+        // ==================== REDIS-BASED IDEMPOTENCY CHECK (ONE ROUND TRIP) ====================
+        BatchClaim claim = idempotencyService.claimAllForTransaction("CreditApplicationSubmitted",
+                eventsById.keySet(), "RiskAssessmentConsumer");
+        if (!claim.inFlight().isEmpty()) {
+            // Roll back (releases this batch's claims) and redeliver the whole poll after a backoff.
+            // Index 0: nothing of the batch is committed, so no offset may advance.
+            String inFlightId = claim.inFlight().iterator().next();
+            throw new BatchListenerFailedException(claim.inFlight().size() + " events of the batch are in flight",
+                    new EventInFlightException("CreditApplicationSubmitted", inFlightId), 0);
+        }
+        Set<String> newIds = claim.acquired();
+        if (newIds.isEmpty()) {
+            log.warn("All {} events of the batch already processed, skipping", events.size());
+            return;
+        }
+
+        log.info("Starting risk assessment for batch of {} applications", newIds.size());
+
+        // ==================== EXTERNAL ENRICHMENT (CONCURRENT) ====================
+        // All bureau lookups of the poll are in flight at once (bounded), then the batch
+        // commits as a whole - so offsets still only advance past completed work
+        List<CreditApplicationSubmitted> newEvents = newIds.stream().map(eventsById::get).toList();
+        Map<String, CreditBureauReport> reports = fetchReports(newEvents);
+
+        // ==================== RISK ASSESSMENT (ONE MODEL CALL FOR THE POLL) ====================
+        Map<String, RiskAssessment> assessments = assessAll(newEvents, reports).stream()
+                .collect(Collectors.toMap(RiskAssessment::getApplicationId, Function.identity()));
+
+        // ONE multi-row load: SELECT ... WHERE application_id IN (...)
+        Map<String, CreditApplication> applications = applicationRepository.findAllById(newIds).stream()
+                .collect(Collectors.toMap(CreditApplication::getApplicationId, Function.identity()));
+
+        for (String applicationId : newIds) {
+            CreditApplication application = applications.get(applicationId);
+            if (application == null) {
+                // Same as processApplication(): retried, then skipped by the error handler
+                throw new ApplicationFailedException(applicationId,
+                        new IllegalStateException("Application not found: " + applicationId));
+            }
+
+            RiskAssessment assessment = assessments.get(applicationId);
+
+            // persist() (not save()): assigned IDs would make save() SELECT first (merge)
+            entityManager.persist(assessment);
+
+            // Managed entity: the UPDATE is flushed at commit, batched with the others
+            application.setStatus(CreditApplication.ApplicationStatus.RISK_ASSESSED);
+
+            applicationService.evictApplicationCache(applicationId);
+            saveResultToOutbox(assessment);
+        }
+
+        log.info("Risk assessment completed for batch of {} applications", newIds.size());
+    }
+
+    /**
+     * Request the bureau reports for the given applications, with at most
+     * credit-bureau.max-in-flight lookups outstanding at a time.
+     *
+     * NON-BLOCKING STAGE:
+     * ===================
+     * Before, each application blocked the consumer thread for 2 seconds
+     * (Thread.sleep), so 3 consumer threads meant at most 1.5 assessments/s.
+     * Now the calls overlap: a poll of 500 applications waits ~(500 / max-in-flight)
+     * bureau latencies instead of 500. The listener thread only waits for the
+     * whole set to finish, so the commit (and the Kafka offset) stays in order.
+     * Repeat customers are served from CreditBureauReportCache (if enabled).
+     *
+     * @return Report per applicationId
+     * @throws ApplicationFailedException for the first application (in event order) whose
+     *         lookup failed or timed out (the transaction rolls back and Kafka redelivers)
+     */
+    private Map<String, CreditBureauReport> fetchReports(List<CreditApplicationSubmitted> events) {
+        Semaphore inFlight = new Semaphore(bureauMaxInFlight);
+        Map<String, CompletableFuture<CreditBureauReport>> pending = new LinkedHashMap<>();
+
+        for (CreditApplicationSubmitted event : events) {
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<CreditBureauReport> report = creditBureauReports
+                    .fetchReport(event.applicationId(), event.customerId())
+                    .orTimeout(bureauTimeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((result, error) -> inFlight.release());
+            pending.put(event.applicationId(), report);
+        }
+
+        // Wait for ALL lookups (none left running), then report the first failure in event order
+        CompletableFuture.allOf(pending.values().toArray(CompletableFuture[]::new))
+                .exceptionally(error -> null)
+                .join();
+
+        Map<String, CreditBureauReport> reports = new LinkedHashMap<>();
+        pending.forEach((applicationId, report) -> {
+            try {
+                reports.put(applicationId, report.join());
+            } catch (CompletionException e) {
+                throw new ApplicationFailedException(applicationId, e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        return reports;
+    }
+
+    /**
+     * Assess a batch of applications (no database access).
+     *
+     * - Risk LEVEL: the rules (RiskScoringEngine)
+     * - Risk SCORE: probability of default x 100 from the risk model, in ONE batched
+     *   predict() call for all applications (RiskModelScorer); the rule-based score
+     *   if no model is configured
+     *
+     * The bureau's score wins over the declared one if the bureau has one.
+     *
+     * The rule version is read ONCE for the whole batch: a hot swap in the middle of
+     * a poll must not score one committed batch with two rule versions.
+     *
+     * @return Assessments in the order of the events
+     * @throws ApplicationFailedException for the first application that can't be assessed
+     *         (e.g. a missing amount on a non-critical credit score)
+     */
+    private List<RiskAssessment> assessAll(List<CreditApplicationSubmitted> events,
+                                           Map<String, CreditBureauReport> reports) {
+        CompiledRiskRules rules = riskRuleStore.current();
+        List<Integer> creditScores = events.stream()
+                .map(event -> effectiveCreditScore(event, reports.get(event.applicationId())))
+                .toList();
+
+        double[] probabilities = riskModelScorer.predict(IntStream.range(0, events.size())
+                .mapToObj(i -> new RiskModelInput(creditScores.get(i),
+                        events.get(i).requestedAmount(), events.get(i).annualIncome()))
+                .toList());
+
+        List<RiskAssessment> assessments = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            Double probability = probabilities != null ? probabilities[i] : null;
+            try {
+                assessments.add(assess(rules, events.get(i), creditScores.get(i), probability));
+            } catch (RuntimeException e) {
+                throw new ApplicationFailedException(events.get(i).applicationId(), e);
+            }
+        }
+        return assessments;
+    }
+
+    private static Integer effectiveCreditScore(CreditApplicationSubmitted event, CreditBureauReport report) {
+        return report != null && report.creditScore() != null ? report.creditScore() : event.creditScore();
+    }
+
+    /**
+     * Assess one application.
+     *
+     * @param rules Rule version pinned for the batch (see assessAll)
+     * @param probability Model probability of default, or null without a model
+     */
+    private RiskAssessment assess(CompiledRiskRules rules, CreditApplicationSubmitted event, Integer creditScore,
+                                  Double probability) {
+        // Decimal -> cents once, here at the event boundary; the rules then run on primitives
+        RiskLevel riskLevel = riskScoringEngine.riskLevel(rules,
+                creditScore != null ? creditScore : RiskScoringEngine.NO_CREDIT_SCORE,
+                RiskScoringEngine.toCentsOrMissing(event.requestedAmount()),
+                RiskScoringEngine.toCentsOrMissing(event.annualIncome()));
+        BigDecimal riskScore = probability != null
+                ? RiskModelScorer.riskScore(probability)
+                : riskScoringEngine.riskScore(creditScore);
+        String notes = generateAssessmentNotes(riskLevel, creditScore, event);
+        if (probability != null) {
+            notes += riskModelScorer.notes(probability);
+        }
+
+        RiskAssessment assessment = new RiskAssessment();
+        assessment.setAssessmentId(UUID.randomUUID().toString());
+        assessment.setApplicationId(event.applicationId());
+        assessment.setRiskLevel(riskLevel);
+        assessment.setRiskScore(riskScore);
+        assessment.setAssessmentNotes(notes);
+        return assessment;
+    }
+
+    /**
+     * Create the RiskAssessmentCompleted event and save it to the outbox
+     * (instead of publishing directly to Kafka).
+     */
+    private void saveResultToOutbox(RiskAssessment assessment) {
         RiskAssessmentCompleted resultEvent = new RiskAssessmentCompleted(
-                assessmentId,
-                event.applicationId(),
-                riskLevel,
-                riskScore,
-                notes,
+                assessment.getAssessmentId(),
+                assessment.getApplicationId(),
+                assessment.getRiskLevel(),
+                assessment.getRiskScore(),
+                assessment.getAssessmentNotes(),
                 Instant.now()
         );
 
-        // Save to outbox table (SAME transaction as risk assessment save!)
         try {
-            saveToOutbox(resultEvent, assessmentId, "RiskAssessmentCompleted", KafkaTopics.RISK_ASSESSMENT_COMPLETED);
-            log.info("Saved RiskAssessmentCompleted event to outbox for application: {}", event.applicationId());
+            saveToOutbox(resultEvent, assessment.getAssessmentId(), assessment.getApplicationId(),
+                    "RiskAssessmentCompleted", KafkaTopics.RISK_ASSESSMENT_COMPLETED);
+            log.info("Saved RiskAssessmentCompleted event to outbox for application: {}", assessment.getApplicationId());
         } catch (JsonProcessingException e) {
-            log.error("Failed to serialize event for outbox: {}", assessmentId, e);
+            log.error("Failed to serialize event for outbox: {}", assessment.getAssessmentId(), e);
             throw new RuntimeException("Failed to save event to outbox", e);
         }
     }
@@ -176,66 +475,63 @@ public class RiskAssessmentConsumer {
      * Save event to outbox table.
      * This is a helper method that serializes the event and saves it to the outbox.
      */
-    private void saveToOutbox(Object event, String eventId, String eventType, String topic)
+    private void saveToOutbox(Object event, String eventId, String aggregateId, String eventType, String topic)
             throws JsonProcessingException {
 
         String payload = objectMapper.writeValueAsString(event);
 
         OutboxEvent outboxEvent = new OutboxEvent();
         outboxEvent.setEventId(eventId);
+        outboxEvent.setAggregateId(aggregateId);
         outboxEvent.setEventType(eventType);
         outboxEvent.setPayload(payload);
         outboxEvent.setTopic(topic);
 
         outboxEventRepository.save(outboxEvent);
-    }
-
-    /**
-     * Simple risk level calculation based on credit score and debt-to-income ratio.
-     */
-    private RiskLevel calculateRiskLevel(Integer creditScore, BigDecimal annualIncome, BigDecimal requestedAmount) {
-        // Simplified risk calculation (real systems are much more complex)
-
-        if (creditScore == null || creditScore < 550) {
-            return RiskLevel.CRITICAL;
-        }
 
-        // Calculate debt-to-income ratio
-        BigDecimal debtToIncomeRatio = requestedAmount.divide(annualIncome, 2, BigDecimal.ROUND_HALF_UP);
+        // Hand the row to the change stream once this transaction commits (see OutboxWakeupNotifier)
+        eventPublisher.publishEvent(new OutboxEventSaved(outboxEvent.getId(), outboxEvent.getPartitionBucket()));
+    }
 
-        if (creditScore >= 750 && debtToIncomeRatio.compareTo(BigDecimal.valueOf(0.3)) < 0) {
-            return RiskLevel.LOW;
-        } else if (creditScore >= 650 && debtToIncomeRatio.compareTo(BigDecimal.valueOf(0.5)) < 0) {
-            return RiskLevel.MEDIUM;
-        } else {
-            return RiskLevel.HIGH;
+    private static int firstIndexOf(List<CreditApplicationSubmitted> events, String applicationId) {
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i).applicationId().equals(applicationId)) {
+                return i;
+            }
         }
+        throw new IllegalArgumentException("Application not in batch: " + applicationId);
     }
 
     /**
-     * Calculate numerical risk score (0-100).
+     * One application of a batch could not be processed (the cause says why).
+     * Lets the batch listener tell the error handler WHICH record failed.
      */
-    private BigDecimal calculateRiskScore(Integer creditScore, BigDecimal annualIncome, BigDecimal requestedAmount) {
-        // Simplified: convert credit score to 0-100 scale
-        if (creditScore == null) {
-            return BigDecimal.valueOf(80); // High risk if no credit score
-        }
+    private static final class ApplicationFailedException extends RuntimeException {
 
-        // Higher credit score = lower risk score
-        BigDecimal score = BigDecimal.valueOf(850 - creditScore)
-                .divide(BigDecimal.valueOf(850), 2, BigDecimal.ROUND_HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
+        private final String applicationId;
 
-        return score;
+        ApplicationFailedException(String applicationId, Throwable cause) {
+            super("Risk assessment failed for application " + applicationId, cause);
+            this.applicationId = applicationId;
+        }
     }
 
     /**
      * Generate human-readable assessment notes.
+     *
+     * Shows the credit score the assessment was made with (the bureau's, if it had one),
+     * plus the declared score when the bureau's differs from it.
+     *
+     * @param creditScore Effective credit score (see effectiveCreditScore)
      */
-    private String generateAssessmentNotes(RiskLevel riskLevel, CreditApplicationSubmitted event) {
-        return String.format("Risk Level: %s. Credit Score: %d, Annual Income: %s, Requested: %s",
+    private String generateAssessmentNotes(RiskLevel riskLevel, Integer creditScore, CreditApplicationSubmitted event) {
+        String declared = Objects.equals(creditScore, event.creditScore())
+                ? ""
+                : " (declared: " + event.creditScore() + ")";
+        return String.format("Risk Level: %s. Credit Score: %d%s, Annual Income: %s, Requested: %s",
                 riskLevel,
-                event.creditScore(),
+                creditScore,
+                declared,
                 event.annualIncome(),
                 event.requestedAmount());
     }
@@ -0,0 +1,57 @@
+package com.creditrisk.controller;
+
+import com.creditrisk.service.RescoringService;
+import com.creditrisk.service.RescoringService.RescoringProgress;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST Controller for bulk re-scoring of stored applications (after a risk rule change).
+ */
+@RestController
+@RequestMapping("/api/rescoring")
+@RequiredArgsConstructor
+@Slf4j
+public class RescoringController {
+
+    private final RescoringService rescoringService;
+
+    /**
+     * Start re-scoring all applications with the current risk rules.
+     *
+     * POST /api/rescoring
+     *
+     * Returns 202 immediately; the job runs in the background.
+     * If a run is already in progress, its progress is returned instead.
+     */
+    @PostMapping
+    public ResponseEntity<RescoringProgress> startRescoring() {
+        log.info("Received re-scoring request");
+        return ResponseEntity.accepted().body(rescoringService.start());
+    }
+
+    /**
+     * Progress and throughput of the current (or last) run.
+     *
+     * GET /api/rescoring
+     *
+     * Example response:
+     * {
+     *   "state": "RUNNING",
+     *   "rulesVersion": 2,
+     *   "rowsScored": 1250000,
+     *   "rowsSkipped": 3,
+     *   "elapsedMillis": 41000,
+     *   "rowsPerSecond": 30487,
+     *   ...
+     * }
+     */
+    @GetMapping
+    public ResponseEntity<RescoringProgress> getProgress() {
+        return rescoringService.progress()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -44,21 +44,35 @@ import java.time.Instant;
  * IMPLEMENTATION:
  * ---------------
  * This is used with OutboxEventPublisher service that:
- * - Polls this table every N milliseconds
+ * - Polls this table every N milliseconds (keyset pagination by id, see idx_outbox_pending)
  * - Publishes unpublished events to Kafka
  * - Marks them as published on success
- * - Retries failures automatically
+ * - Retries failures automatically (exponential backoff, then dead-letter)
  */
 @Entity
 @Table(name = "outbox_events",
        indexes = {
-           @Index(name = "idx_published", columnList = "published"),
-           @Index(name = "idx_created_at", columnList = "createdAt")
+           // Publisher scan: WHERE published = false AND partition_bucket = ? AND id > ? ORDER BY id
+           @Index(name = "idx_outbox_pending", columnList = "published, partitionBucket, id"),
+           // Stuck-event monitoring: WHERE published = false AND created_at < ?
+           @Index(name = "idx_outbox_published_created", columnList = "published, createdAt"),
+           // Retention job: WHERE published = true AND published_at < ?
+           @Index(name = "idx_published_at", columnList = "published, publishedAt"),
+           // Ordering check: blocked events WHERE aggregate_id IN (...) AND published = false
+           @Index(name = "idx_outbox_aggregate", columnList = "aggregateId, published")
        })
 @Data
 @NoArgsConstructor
 public class OutboxEvent {
 
+    /**
+     * Number of outbox partitions (buckets).
+     * Each bucket is drained by at most one publisher at a time, so up to
+     * PARTITION_COUNT publishers across the cluster can run in parallel.
+     * Changing this value only affects rows inserted afterwards.
+     */
+    public static final int PARTITION_COUNT = 16;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -77,9 +91,22 @@ public class OutboxEvent {
     @Column(nullable = false)
     private String eventType;
 
+    /**
+     * Business key of the aggregate this event belongs to (applicationId).
+     * Used as the Kafka message key so all events of one application land
+     * on the same partition. Null for rows written before this column existed.
+     */
+    private String aggregateId;
+
+    /**
+     * Outbox partition this event belongs to (hash of aggregateId, falling back to eventId).
+     * All events of one application share a bucket, which preserves per-application ordering.
+     */
+    private Integer partitionBucket;
+
     /**
      * Event payload serialized as JSON
-     * Will be deserialized and sent to Kafka.
+     * Sent to Kafka as-is (raw payload mode) or deserialized and re-serialized.
      */
     @Column(nullable = false, columnDefinition = "TEXT")
     private String payload;
@@ -123,6 +150,20 @@ public class OutboxEvent {
     @Column(columnDefinition = "TEXT")
     private String lastError;
 
+    /**
+     * Earliest time of the next publish attempt after a failure (exponential backoff).
+     * Null = eligible immediately.
+     */
+    private Instant nextAttemptAt;
+
+    /**
+     * When this event was parked in the dead-letter state (null = not dead-lettered).
+     * Dead-lettered events are skipped by the publisher until someone requeues them,
+     * and so are the later events of the same application (per-application order):
+     * UPDATE outbox_events SET dead_lettered_at = NULL, next_attempt_at = NULL, retry_count = 0 WHERE id = ?
+     */
+    private Instant deadLetteredAt;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -134,5 +175,15 @@ public class OutboxEvent {
         if (retryCount == null) {
             retryCount = 0;
         }
+        if (partitionBucket == null) {
+            partitionBucket = bucketFor(aggregateId != null ? aggregateId : eventId);
+        }
+    }
+
+    /**
+     * Compute the outbox partition for a business key.
+     */
+    public static int bucketFor(String key) {
+        return Math.floorMod(key.hashCode(), PARTITION_COUNT);
     }
 }
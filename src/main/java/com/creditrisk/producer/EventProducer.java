@@ -5,11 +5,15 @@ import com.creditrisk.event.CreditApplicationSubmitted;
 import com.creditrisk.event.RiskAssessmentCompleted;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Service for publishing events to Kafka.
@@ -38,6 +42,11 @@ import java.util.concurrent.CompletableFuture;
 public class EventProducer {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> rawKafkaTemplate;
+
+    // Headers added to dead-lettered outbox events
+    public static final String DLT_EVENT_TYPE_HEADER = "outbox-event-type";
+    public static final String DLT_ERROR_HEADER = "outbox-error";
 
     /**
      * Publish a CreditApplicationSubmitted event.
@@ -93,4 +102,92 @@ public class EventProducer {
 
         return future;
     }
+
+    /**
+     * Publish an already-serialized JSON payload (raw payload passthrough).
+     *
+     * Used by the outbox publisher: the payload is sent byte-for-byte as stored,
+     * with the same type header JsonSerializer would add, so consumers using
+     * JsonDeserializer receive the same event records.
+     *
+     * @param topic Target topic
+     * @param key Message key (applicationId, keeps one application on one partition)
+     * @param eventClass Event record class, written to the type header
+     * @param payload JSON payload as stored in the outbox
+     * @return CompletableFuture that completes when Kafka acknowledges
+     */
+    public CompletableFuture<SendResult<String, byte[]>> publishRawPayload(
+            String topic, String key, Class<?> eventClass, String payload) {
+
+        log.debug("Publishing raw {} payload to {}: {}", eventClass.getSimpleName(), topic, key);
+
+        ProducerRecord<String, byte[]> record =
+                new ProducerRecord<>(topic, key, payload.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME,
+                eventClass.getName().getBytes(StandardCharsets.UTF_8));
+
+        CompletableFuture<SendResult<String, byte[]>> future = rawKafkaTemplate.send(record);
+
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to publish raw {} payload: {}", eventClass.getSimpleName(), key, ex);
+            } else {
+                log.debug("Successfully published raw {} payload: {} to partition {}",
+                        eventClass.getSimpleName(), key, result.getRecordMetadata().partition());
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Run a unit of work inside a Kafka transaction.
+     *
+     * Every send made through the chosen template on this thread while the work runs
+     * becomes part of ONE Kafka transaction: committed together if the work returns,
+     * aborted together if it throws. Requires transactional mode (see KafkaConfig).
+     *
+     * @param raw true to use the raw-payload template, false for the typed template
+     * @param work Sends to perform (and wait for)
+     * @return Result of the work
+     */
+    public <T> T executeInTransaction(boolean raw, Supplier<T> work) {
+        if (raw) {
+            return rawKafkaTemplate.executeInTransaction(operations -> work.get());
+        }
+        return kafkaTemplate.executeInTransaction(operations -> work.get());
+    }
+
+    /**
+     * Publish an outbox event that failed too many times to the dead-letter topic.
+     *
+     * The payload is forwarded unchanged; the original event type and the last error
+     * travel as headers so the event can be inspected and replayed.
+     *
+     * @param key Message key (applicationId or eventId)
+     * @param eventType Original outbox event type
+     * @param payload Original JSON payload
+     * @param error Last publishing error
+     * @return CompletableFuture that completes when Kafka acknowledges
+     */
+    public CompletableFuture<SendResult<String, byte[]>> publishDeadLetter(
+            String key, String eventType, String payload, String error) {
+
+        log.warn("Publishing {} event to dead-letter topic: {}", eventType, key);
+
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(
+                KafkaTopics.OUTBOX_DEAD_LETTER, key, payload.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(DLT_EVENT_TYPE_HEADER, eventType.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(DLT_ERROR_HEADER, String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+
+        CompletableFuture<SendResult<String, byte[]>> future = rawKafkaTemplate.send(record);
+
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to publish {} event to dead-letter topic: {}", eventType, key, ex);
+            }
+        });
+
+        return future;
+    }
 }
@@ -0,0 +1,15 @@
+package com.creditrisk.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns of a credit application that scoring needs - nothing else is loaded
+ * (no entity, no persistence context) when re-scoring the whole table.
+ */
+public record ApplicationScoringRow(
+        String applicationId,
+        Integer creditScore,
+        BigDecimal requestedAmount,
+        BigDecimal annualIncome
+) {
+}
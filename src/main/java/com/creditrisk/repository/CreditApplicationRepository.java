@@ -1,13 +1,26 @@
 package com.creditrisk.repository;
 
 import com.creditrisk.model.CreditApplication;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CreditApplicationRepository extends JpaRepository<CreditApplication, String> {
 
     Optional<CreditApplication> findByApplicationId(String applicationId);
+
+    /**
+     * Keyset pagination for bulk re-scoring: the next page of scoring columns after the given ID.
+     * Uses the primary key index (no OFFSET scan, stable while rows are added).
+     */
+    @Query("SELECT new com.creditrisk.repository.ApplicationScoringRow("
+            + "a.applicationId, a.creditScore, a.requestedAmount, a.annualIncome) "
+            + "FROM CreditApplication a WHERE a.applicationId > :afterId ORDER BY a.applicationId ASC")
+    List<ApplicationScoringRow> findScoringRowsAfter(@Param("afterId") String afterId, Pageable pageable);
 }
@@ -1,51 +1,108 @@
 package com.creditrisk.repository;
 
 import com.creditrisk.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Repository for managing outbox events.
  *
  * Key queries:
- * - Find unpublished events (for the publisher to process)
- * - Find old unpublished events (for alerting on stuck events)
+ * - Find unpublished events of a bucket (for the publisher to process)
+ * - Count old unpublished events (for alerting on stuck events)
+ * - Bulk-mark acknowledged events as published (one UPDATE per batch)
+ * - Find old published events (for the retention job)
+ *
+ * Every scan here is served by one of the composite indexes on OutboxEvent;
+ * OutboxEventRepositoryPlanTest checks the plans of these exact queries.
  */
 @Repository
 public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
 
     /**
-     * Find all unpublished events, ordered by creation time (FIFO).
-     * This ensures events are published in the order they were created.
+     * Find unpublished events of one outbox partition (bucket), FIFO, with a limit.
+     * Each publisher instance only drains the buckets it holds a lease on.
+     *
+     * KEYSET PAGINATION:
+     * Pages are addressed by the last seen id (id > afterId) instead of re-running
+     * ORDER BY created_at from the start. With the composite index
+     * (published, partition_bucket, id) this is a single index range seek,
+     * no matter how many published rows the table holds.
+     *
+     * Events in backoff (next_attempt_at in the future) and dead-lettered events are
+     * skipped, so a few failing events can't fill every batch.
      *
-     * @return List of unpublished events
+     * @param bucket Outbox partition (0 .. OutboxEvent.PARTITION_COUNT - 1)
+     * @param afterId Only return events with a greater id (0 = from the start)
+     * @param now Current time (events with next_attempt_at after this are skipped)
+     * @param limit Maximum number of events to fetch
+     * @return List of unpublished events in the bucket, ordered by id
      */
-    @Query("SELECT e FROM OutboxEvent e WHERE e.published = false ORDER BY e.createdAt ASC")
-    List<OutboxEvent> findUnpublishedEvents();
+    @Query(value = "SELECT * FROM outbox_events WHERE published = false AND partition_bucket = ?1 "
+                 + "AND id > ?2 AND dead_lettered_at IS NULL "
+                 + "AND (next_attempt_at IS NULL OR next_attempt_at <= ?3) ORDER BY id ASC LIMIT ?4",
+           nativeQuery = true)
+    List<OutboxEvent> findUnpublishedEventsInBucketAfter(int bucket, long afterId, Instant now, int limit);
 
     /**
-     * Find unpublished events with a limit (for batch processing).
-     * Prevents loading too many events at once.
+     * First blocked event of each given application: an unpublished event that is
+     * backing off (next_attempt_at in the future) or dead-lettered.
      *
-     * @param limit Maximum number of events to fetch
-     * @return List of unpublished events
+     * The publisher holds back every later event of these applications, so they
+     * can't overtake the blocked one (per-application order). Served by
+     * idx_outbox_aggregate; blocked rows are rare, so the result is usually empty.
+     *
+     * @param aggregateIds Applications of the batch about to be sent
+     * @param now Current time
+     * @return Lowest blocked outbox id per application that has one
      */
-    @Query(value = "SELECT * FROM outbox_events WHERE published = false ORDER BY created_at ASC LIMIT ?1",
-           nativeQuery = true)
-    List<OutboxEvent> findUnpublishedEventsWithLimit(int limit);
+    @Query("SELECT e.aggregateId AS aggregateId, MIN(e.id) AS firstBlockedId FROM OutboxEvent e "
+         + "WHERE e.aggregateId IN :aggregateIds AND e.published = false "
+         + "AND (e.deadLetteredAt IS NOT NULL OR e.nextAttemptAt > :now) GROUP BY e.aggregateId")
+    List<BlockedAggregate> findBlockedAggregates(@Param("aggregateIds") Collection<String> aggregateIds,
+                                                 @Param("now") Instant now);
+
+    /**
+     * Assign rows written before outbox partitioning existed to bucket 0.
+     * Run once at startup so those rows are still picked up by a publisher.
+     *
+     * @return Number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.partitionBucket = 0 WHERE e.partitionBucket IS NULL")
+    int assignUnpartitionedEventsToDefaultBucket();
+
+    /**
+     * Count unpublished, not dead-lettered events older than a certain time.
+     *
+     * @param before Events created before this time
+     * @return Number of stuck events
+     */
+    long countByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBefore(Instant before);
 
     /**
-     * Find unpublished events older than a certain time.
-     * Useful for monitoring and alerting on stuck events.
+     * Oldest stuck events created before a certain time (for logging a sample).
      *
      * @param before Events created before this time
-     * @return List of old unpublished events
+     * @return Up to 20 stuck events, oldest first
      */
-    List<OutboxEvent> findByPublishedFalseAndCreatedAtBefore(Instant before);
+    List<OutboxEvent> findTop20ByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBeforeOrderByIdAsc(
+            Instant before);
+
+    /**
+     * Count events parked in the dead-letter state.
+     *
+     * @return Number of dead-lettered events
+     */
+    long countByPublishedFalseAndDeadLetteredAtIsNotNull();
 
     /**
      * Count unpublished events.
@@ -54,4 +111,36 @@ public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>
      * @return Number of unpublished events
      */
     long countByPublishedFalse();
+
+    /**
+     * Find IDs of events published before a certain time, oldest first.
+     * Used by the retention job to delete/archive in chunks.
+     *
+     * @param before Events published before this time
+     * @param pageable Chunk size (use PageRequest.of(0, chunkSize))
+     * @return IDs of old published events
+     */
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.published = true AND e.publishedAt < :before ORDER BY e.id ASC")
+    List<Long> findPublishedIdsBefore(@Param("before") Instant before, Pageable pageable);
+
+    /**
+     * Mark a batch of events as published with a single bulk UPDATE.
+     * Called by the publisher only after Kafka has acknowledged every event in the list.
+     *
+     * @param ids Outbox row IDs acknowledged by Kafka
+     * @param publishedAt Publication timestamp to record
+     * @return Number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.published = true, e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markAsPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") Instant publishedAt);
+
+    /**
+     * Projection of findBlockedAggregates.
+     */
+    interface BlockedAggregate {
+        String getAggregateId();
+
+        Long getFirstBlockedId();
+    }
 }
@@ -4,6 +4,8 @@ import com.creditrisk.model.ProcessedEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 /**
  * Repository for tracking processed events (idempotency).
  *
@@ -19,4 +21,10 @@ public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent,
      * This is used BEFORE processing any event to ensure idempotency.
      */
     boolean existsByEventId(String eventId);
+
+    /**
+     * Load the processing record of an event (who processed it and when).
+     * Used by the fallback idempotency store while Redis is unavailable.
+     */
+    Optional<ProcessedEvent> findByEventId(String eventId);
 }
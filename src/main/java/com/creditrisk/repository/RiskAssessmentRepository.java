@@ -10,4 +10,9 @@ import java.util.Optional;
 public interface RiskAssessmentRepository extends JpaRepository<RiskAssessment, String> {
 
     Optional<RiskAssessment> findByApplicationId(String applicationId);
+
+    /**
+     * Latest assessment of an application (re-scoring adds assessments, it never replaces them).
+     */
+    Optional<RiskAssessment> findFirstByApplicationIdOrderByAssessedAtDesc(String applicationId);
 }
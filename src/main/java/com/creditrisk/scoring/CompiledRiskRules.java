@@ -0,0 +1,168 @@
+package com.creditrisk.scoring;
+
+import com.creditrisk.model.DecisionStatus;
+import com.creditrisk.model.RiskLevel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * RISK RULES COMPILED INTO A FLAT DECISION TABLE
+ * ==============================================
+ *
+ * The rule file is parsed once; evaluation must not touch JSON, maps or BigDecimal.
+ * So the level rows become parallel primitive arrays, checked in order:
+ *
+ *   index:          0     1
+ *   minCreditScore: 750   650
+ *   maxDtiHundredths: 30  50
+ *   level:          LOW   MEDIUM      (no match -> defaultLevel)
+ *
+ * and the decision map becomes an array indexed by RiskLevel.ordinal().
+ * A few array reads and int comparisons per application: nanoseconds, no allocation.
+ *
+ * Immutable - RiskRuleStore swaps whole instances, so an evaluation always sees
+ * ONE consistent version of the rules, even while a new version is being loaded.
+ */
+public final class CompiledRiskRules {
+
+    private final long version;
+    private final int criticalBelowCreditScore;
+    private final int[] minCreditScores;
+    private final long[] maxDtiHundredths;
+    private final RiskLevel[] levels;
+    private final RiskLevel defaultLevel;
+    private final DecisionStatus[] decisionsByLevel;
+
+    private CompiledRiskRules(long version, int criticalBelowCreditScore, int[] minCreditScores,
+                              long[] maxDtiHundredths, RiskLevel[] levels, RiskLevel defaultLevel,
+                              DecisionStatus[] decisionsByLevel) {
+        this.version = version;
+        this.criticalBelowCreditScore = criticalBelowCreditScore;
+        this.minCreditScores = minCreditScores;
+        this.maxDtiHundredths = maxDtiHundredths;
+        this.levels = levels;
+        this.defaultLevel = defaultLevel;
+        this.decisionsByLevel = decisionsByLevel;
+    }
+
+    /**
+     * Validate and compile a rule file.
+     *
+     * VALIDATION:
+     * ===========
+     * These rules are hot-swapped into running consumers, so a file that is merely
+     * parseable is not enough. Rejected (the running version stays in force):
+     * - Any missing field (a missing number must not silently become 0)
+     * - Level rows that are not ordered from the safest to the riskiest, i.e. where
+     *   going down the table minCreditScore goes UP, maxDebtToIncome goes DOWN, or the
+     *   level gets LESS severe - with first-match evaluation such a row is dead or inverted
+     * - minCreditScore below criticalBelowCreditScore (those scores never reach the table)
+     * - A negative maxDebtToIncome, or a defaultLevel less severe than the last row
+     *
+     * @throws IllegalArgumentException if the rules are incomplete or invalid
+     */
+    public static CompiledRiskRules compile(RiskRuleDefinition definition) {
+        Long version = required(definition.version(), "version");
+        if (version <= 0) {
+            throw new IllegalArgumentException("Rule version must be positive");
+        }
+        int criticalBelowCreditScore = required(definition.criticalBelowCreditScore(), "criticalBelowCreditScore");
+        RiskLevel defaultLevel = required(definition.defaultLevel(), "defaultLevel");
+        List<RiskRuleDefinition.LevelRule> rows = required(definition.levels(), "levels");
+
+        int[] minCreditScores = new int[rows.size()];
+        long[] maxDtiHundredths = new long[rows.size()];
+        RiskLevel[] levels = new RiskLevel[rows.size()];
+
+        for (int i = 0; i < rows.size(); i++) {
+            RiskRuleDefinition.LevelRule row = required(rows.get(i), "levels[" + i + "]");
+            levels[i] = required(row.level(), "levels[" + i + "].level");
+            minCreditScores[i] = required(row.minCreditScore(), "levels[" + i + "].minCreditScore");
+            maxDtiHundredths[i] = toHundredths(required(row.maxDebtToIncome(), "levels[" + i + "].maxDebtToIncome"), i);
+
+            if (minCreditScores[i] < criticalBelowCreditScore) {
+                throw new IllegalArgumentException("levels[" + i + "].minCreditScore " + minCreditScores[i]
+                        + " is below criticalBelowCreditScore " + criticalBelowCreditScore);
+            }
+            if (maxDtiHundredths[i] < 0) {
+                throw new IllegalArgumentException("levels[" + i + "].maxDebtToIncome must not be negative");
+            }
+            if (i > 0) {
+                requireMonotonic(i, minCreditScores[i] <= minCreditScores[i - 1], "minCreditScore must not increase");
+                requireMonotonic(i, maxDtiHundredths[i] >= maxDtiHundredths[i - 1], "maxDebtToIncome must not decrease");
+                requireMonotonic(i, levels[i].compareTo(levels[i - 1]) >= 0, "level must not get less severe");
+            }
+        }
+        if (levels.length > 0 && defaultLevel.compareTo(levels[levels.length - 1]) < 0) {
+            throw new IllegalArgumentException("defaultLevel " + defaultLevel + " is less severe than the last level "
+                    + levels[levels.length - 1]);
+        }
+
+        DecisionStatus[] decisionsByLevel = new DecisionStatus[RiskLevel.values().length];
+        for (RiskLevel level : RiskLevel.values()) {
+            DecisionStatus decision = definition.decisions() != null ? definition.decisions().get(level) : null;
+            if (decision == null) {
+                throw new IllegalArgumentException("No decision for risk level " + level);
+            }
+            decisionsByLevel[level.ordinal()] = decision;
+        }
+
+        return new CompiledRiskRules(version, criticalBelowCreditScore,
+                minCreditScores, maxDtiHundredths, levels, defaultLevel, decisionsByLevel);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * True if the credit score alone makes the application CRITICAL (no ratio needed).
+     */
+    public boolean isCritical(int creditScore) {
+        return creditScore < criticalBelowCreditScore;
+    }
+
+    /**
+     * Level for a credit score that is NOT critical and a debt-to-income ratio in hundredths.
+     */
+    public RiskLevel levelFor(int creditScore, long dtiHundredths) {
+        for (int i = 0; i < levels.length; i++) {
+            if (creditScore >= minCreditScores[i] && dtiHundredths < maxDtiHundredths[i]) {
+                return levels[i];
+            }
+        }
+        return defaultLevel;
+    }
+
+    public DecisionStatus decisionFor(RiskLevel riskLevel) {
+        return decisionsByLevel[riskLevel.ordinal()];
+    }
+
+    private static <T> T required(T value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static void requireMonotonic(int row, boolean ordered, String rule) {
+        if (!ordered) {
+            throw new IllegalArgumentException("levels[" + row + "]: " + rule
+                    + " from one row to the next (order rows from the safest to the riskiest)");
+        }
+    }
+
+    /**
+     * The ratio is compared in hundredths, so thresholds can't have more than 2 decimals.
+     */
+    private static long toHundredths(BigDecimal ratio, int row) {
+        try {
+            return ratio.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("maxDebtToIncome of level rule " + row
+                    + " must have at most 2 decimals: " + ratio);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.creditrisk.scoring;
+
+import com.creditrisk.model.DecisionStatus;
+import com.creditrisk.model.RiskLevel;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Risk rules as written in the rule file (risk-rules.json), before compilation.
+ *
+ * Example:
+ * {
+ *   "version": 2,
+ *   "criticalBelowCreditScore": 550,
+ *   "levels": [
+ *     { "level": "LOW",    "minCreditScore": 750, "maxDebtToIncome": 0.30 },
+ *     { "level": "MEDIUM", "minCreditScore": 650, "maxDebtToIncome": 0.50 }
+ *   ],
+ *   "defaultLevel": "HIGH",
+ *   "decisions": { "LOW": "APPROVED", "MEDIUM": "MANUAL_REVIEW", "HIGH": "REJECTED", "CRITICAL": "REJECTED" }
+ * }
+ *
+ * - Credit scores below criticalBelowCreditScore (or missing) are CRITICAL
+ * - Otherwise the FIRST level whose minCreditScore is reached and whose debt-to-income
+ *   ratio (rounded to 2 decimals) is BELOW maxDebtToIncome wins
+ * - No match -> defaultLevel
+ * - decisions maps every risk level to the final decision (DecisionConsumer)
+ *
+ * Every field is required (boxed types, so a missing one is null instead of 0), and
+ * the thresholds must be monotonic - see CompiledRiskRules.compile().
+ */
+public record RiskRuleDefinition(
+        Long version,
+        Integer criticalBelowCreditScore,
+        List<LevelRule> levels,
+        RiskLevel defaultLevel,
+        Map<RiskLevel, DecisionStatus> decisions
+) {
+
+    /**
+     * One row of the level table.
+     */
+    public record LevelRule(RiskLevel level, Integer minCreditScore, BigDecimal maxDebtToIncome) {
+    }
+}
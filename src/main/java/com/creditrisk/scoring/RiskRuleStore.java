@@ -0,0 +1,103 @@
+package com.creditrisk.scoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * VERSIONED, HOT-SWAPPABLE RISK RULES
+ * ===================================
+ *
+ * The risk thresholds (550/650/750 credit score, 0.30/0.50 debt-to-income) and the
+ * risk level -> decision mapping used to be hard-coded: changing them meant a redeploy.
+ * Now they live in a versioned JSON file (risk-rules.location, see RiskRuleDefinition).
+ *
+ * HOT SWAP:
+ * =========
+ * Every risk-rules.reload-interval-ms the file is read again. If it has a HIGHER
+ * version, it is compiled (CompiledRiskRules) and swapped in with ONE AtomicReference.set():
+ * - Consumers never pause: they keep evaluating the old instance until the swap
+ * - Each evaluation reads the reference once, so it never mixes two versions
+ * - An invalid file is logged and ignored - the running rules stay in place
+ * - A lower or equal version is ignored (to roll back, publish the old rules as a new version)
+ *
+ * Point risk-rules.location at a file (file:/etc/credit-risk/risk-rules.json) to change
+ * rules at runtime; the classpath default only changes with a deploy.
+ */
+@Component
+@Slf4j
+public class RiskRuleStore {
+
+    private final ObjectMapper objectMapper;
+    private final Resource location;
+    private final AtomicReference<CompiledRiskRules> current = new AtomicReference<>();
+
+    public RiskRuleStore(ObjectMapper objectMapper,
+                         @Value("${risk-rules.location:classpath:risk-rules.json}") Resource location) {
+        this.objectMapper = objectMapper;
+        this.location = location;
+    }
+
+    /**
+     * Rules must be valid at startup - there is nothing to fall back to.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            CompiledRiskRules rules = load();
+            current.set(rules);
+            log.info("Loaded risk rules version {} from {}", rules.version(), location);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot load risk rules from " + location, e);
+        }
+    }
+
+    /**
+     * The rules in force. Read once per evaluation and use that instance throughout.
+     */
+    public CompiledRiskRules current() {
+        return current.get();
+    }
+
+    /**
+     * Pick up a newer rule version, if any.
+     */
+    @Scheduled(initialDelayString = "${risk-rules.reload-interval-ms:10000}",
+            fixedDelayString = "${risk-rules.reload-interval-ms:10000}")
+    public void reload() {
+        CompiledRiskRules running = current.get();
+        CompiledRiskRules loaded;
+        try {
+            loaded = load();
+        } catch (IOException | RuntimeException e) {
+            log.error("Invalid risk rules in {}, keeping version {}", location, running.version(), e);
+            return;
+        }
+
+        if (loaded.version() <= running.version()) {
+            if (loaded.version() < running.version()) {
+                log.warn("Ignoring risk rules version {} (older than running version {})",
+                        loaded.version(), running.version());
+            }
+            return;
+        }
+
+        // Another reload can't run concurrently (fixed delay), so a plain set is enough
+        current.set(loaded);
+        log.info("Risk rules swapped: version {} -> {}", running.version(), loaded.version());
+    }
+
+    private CompiledRiskRules load() throws IOException {
+        try (InputStream in = location.getInputStream()) {
+            return CompiledRiskRules.compile(objectMapper.readValue(in, RiskRuleDefinition.class));
+        }
+    }
+}
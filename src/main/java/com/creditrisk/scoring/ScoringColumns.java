@@ -0,0 +1,90 @@
+package com.creditrisk.scoring;
+
+import com.creditrisk.model.RiskLevel;
+
+/**
+ * COLUMNAR SCORING BUFFERS (BULK RE-SCORING)
+ * ==========================================
+ *
+ * One chunk of applications as parallel primitive arrays instead of a list of objects:
+ *
+ *   row:             0        1        2
+ *   creditScores:    720      NO_SCORE 810
+ *   requestedCents:  5000000  ...
+ *   incomeCents:     8000000  ...
+ *   -> levels:       MEDIUM   CRITICAL LOW
+ *   -> scores:       1500     8000     500
+ *
+ * The scoring loop reads and writes contiguous arrays (cache friendly, no pointer
+ * chasing, no per-row objects), and the buffers are allocated ONCE per job and
+ * refilled for every chunk.
+ *
+ * Missing values use sentinels (RiskScoringEngine.NO_CREDIT_SCORE / NO_AMOUNT).
+ * Not thread-safe: fill, score, read - one chunk at a time.
+ */
+public final class ScoringColumns {
+
+    final int[] creditScores;
+    final long[] requestedCents;
+    final long[] incomeCents;
+    final RiskLevel[] levels;
+    final long[] scoreHundredths;
+    final boolean[] failed;
+    private int size;
+
+    public ScoringColumns(int capacity) {
+        this.creditScores = new int[capacity];
+        this.requestedCents = new long[capacity];
+        this.incomeCents = new long[capacity];
+        this.levels = new RiskLevel[capacity];
+        this.scoreHundredths = new long[capacity];
+        this.failed = new boolean[capacity];
+    }
+
+    /**
+     * Start a new chunk (previous results are overwritten by the next scoring pass).
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Append one application.
+     *
+     * @return Row index
+     */
+    public int add(int creditScore, long requestedCents, long incomeCents) {
+        int row = size++;
+        this.creditScores[row] = creditScore;
+        this.requestedCents[row] = requestedCents;
+        this.incomeCents[row] = incomeCents;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return creditScores.length;
+    }
+
+    public int creditScore(int row) {
+        return creditScores[row];
+    }
+
+    public RiskLevel level(int row) {
+        return levels[row];
+    }
+
+    public long scoreHundredths(int row) {
+        return scoreHundredths[row];
+    }
+
+    /**
+     * True if the row could not be scored (no usable income for a non-critical score).
+     */
+    public boolean failed(int row) {
+        return failed[row];
+    }
+}
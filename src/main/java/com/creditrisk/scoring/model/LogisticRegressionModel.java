@@ -0,0 +1,60 @@
+package com.creditrisk.scoring.model;
+
+import java.util.List;
+
+/**
+ * LOGISTIC REGRESSION
+ * ===================
+ *
+ *   probability = 1 / (1 + e^-(intercept + w1*x1 + w2*x2 + ...))
+ *
+ * Missing features (NaN) are replaced by the imputation value from the model file
+ * (usually the training mean), so one missing value doesn't turn the whole score into NaN.
+ *
+ * Immutable, so thread-safe.
+ */
+public final class LogisticRegressionModel implements RiskModel {
+
+    private final String name;
+    private final List<String> features;
+    private final double intercept;
+    private final double[] weights;
+    private final double[] imputations;
+
+    public LogisticRegressionModel(String name, List<String> features, double intercept,
+                                   double[] weights, double[] imputations) {
+        if (weights.length != features.size() || imputations.length != features.size()) {
+            throw new IllegalArgumentException("One weight and one imputation value per feature required");
+        }
+        features.forEach(RiskModelFeatures::requireKnown);
+        this.name = name;
+        this.features = List.copyOf(features);
+        this.intercept = intercept;
+        this.weights = weights.clone();
+        this.imputations = imputations.clone();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public List<String> features() {
+        return features;
+    }
+
+    @Override
+    public void predict(double[] features, int rows, double[] probabilities) {
+        int width = weights.length;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * width;
+            double margin = intercept;
+            for (int f = 0; f < width; f++) {
+                double x = features[offset + f];
+                margin += weights[f] * (Double.isNaN(x) ? imputations[f] : x);
+            }
+            probabilities[row] = 1.0 / (1.0 + Math.exp(-margin));
+        }
+    }
+}
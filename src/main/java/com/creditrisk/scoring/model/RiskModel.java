@@ -0,0 +1,47 @@
+package com.creditrisk.scoring.model;
+
+import java.util.List;
+
+/**
+ * RISK MODEL SPI
+ * ==============
+ *
+ * A model that turns applicant features into a probability of default (0..1).
+ * The rules (RiskRuleStore) still decide the risk LEVEL; a model, when configured,
+ * provides the numerical risk SCORE (probability x 100).
+ *
+ * BATCHED BY CONTRACT:
+ * ====================
+ * predict() takes a whole micro-batch (all new records of a Kafka poll) as ONE
+ * row-major double[] - no per-record objects, one call per poll. Tree models walk
+ * each tree over all rows before moving on, so a tree's nodes stay in CPU cache.
+ *
+ * Built-in implementations are loaded from a JSON model file (see RiskModelLoader):
+ * - "logistic-regression": LogisticRegressionModel
+ * - "tree-ensemble":       TreeEnsembleModel (gradient-boosted trees, flattened node arrays)
+ * Any other implementation can be plugged in as a Spring bean of this type
+ * (it replaces the file-based model, see RiskModelConfig).
+ *
+ * Implementations must be thread-safe (several listener threads predict at once).
+ */
+public interface RiskModel {
+
+    /**
+     * Name and version for logs, notes and metric tags (e.g. "risk-gbt:3").
+     */
+    String name();
+
+    /**
+     * Feature names in column order (RiskModelFeatures.*).
+     */
+    List<String> features();
+
+    /**
+     * Predict a batch.
+     *
+     * @param features Row-major: row r, feature f at [r * features().size() + f]; NaN = missing
+     * @param rows Number of rows in the batch
+     * @param probabilities Output: probability of default per row (length >= rows)
+     */
+    void predict(double[] features, int rows, double[] probabilities);
+}
@@ -0,0 +1,35 @@
+package com.creditrisk.scoring.model;
+
+import java.util.List;
+
+/**
+ * The features a model file may use, by name.
+ *
+ * - creditScore:     Effective credit score (bureau score if present, else declared)
+ * - debtToIncome:    requestedAmount / annualIncome
+ * - requestedAmount: In currency units
+ * - annualIncome:    In currency units
+ *
+ * Missing values (no score, no income) are NaN; models decide how to treat them.
+ */
+public final class RiskModelFeatures {
+
+    public static final String CREDIT_SCORE = "creditScore";
+    public static final String DEBT_TO_INCOME = "debtToIncome";
+    public static final String REQUESTED_AMOUNT = "requestedAmount";
+    public static final String ANNUAL_INCOME = "annualIncome";
+
+    public static final List<String> ALL = List.of(CREDIT_SCORE, DEBT_TO_INCOME, REQUESTED_AMOUNT, ANNUAL_INCOME);
+
+    private RiskModelFeatures() {
+    }
+
+    /**
+     * @throws IllegalArgumentException for a feature name this application can't provide
+     */
+    static void requireKnown(String feature) {
+        if (!ALL.contains(feature)) {
+            throw new IllegalArgumentException("Unknown model feature: " + feature + " (known: " + ALL + ")");
+        }
+    }
+}
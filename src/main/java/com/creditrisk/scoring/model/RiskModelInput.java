@@ -0,0 +1,11 @@
+package com.creditrisk.scoring.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Raw values of one application for model scoring (converted to features by RiskModelScorer).
+ *
+ * @param creditScore Effective credit score (bureau score if present), null if unknown
+ */
+public record RiskModelInput(Integer creditScore, BigDecimal requestedAmount, BigDecimal annualIncome) {
+}
@@ -0,0 +1,150 @@
+package com.creditrisk.scoring.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a built-in RiskModel from a JSON model file.
+ *
+ * LOGISTIC REGRESSION:
+ * {
+ *   "type": "logistic-regression", "name": "risk-lr", "version": 1,
+ *   "features": ["creditScore", "debtToIncome"],
+ *   "intercept": 3.1,
+ *   "weights": [-0.0085, 2.4],
+ *   "imputations": [600, 0.5]          (optional, value used when a feature is missing; default 0)
+ * }
+ *
+ * TREE ENSEMBLE (e.g. converted from an XGBoost/LightGBM JSON dump):
+ * {
+ *   "type": "tree-ensemble", "name": "risk-gbt", "version": 3,
+ *   "features": ["creditScore", "debtToIncome"],
+ *   "baseScore": -0.4,                 (margin, before the sigmoid)
+ *   "trees": [
+ *     { "nodes": [
+ *         { "id": 0, "feature": "creditScore", "threshold": 650, "yes": 1, "no": 2, "missing": 2 },
+ *         { "id": 1, "leaf": 0.9 },
+ *         { "id": 2, "leaf": -0.6 }
+ *     ] }
+ *   ]
+ * }
+ * Node ids are 0..n-1 within a tree and children have higher ids than their parent
+ * (as in XGBoost dumps). "missing" defaults to "no".
+ */
+public final class RiskModelLoader {
+
+    private RiskModelLoader() {
+    }
+
+    public static RiskModel load(Resource location, ObjectMapper objectMapper) throws IOException {
+        JsonNode model;
+        try (InputStream in = location.getInputStream()) {
+            model = objectMapper.readTree(in);
+        }
+
+        String type = required(model, "type").asText();
+        String name = required(model, "name").asText() + ":" + model.path("version").asText("0");
+        List<String> features = new ArrayList<>();
+        required(model, "features").forEach(feature -> features.add(feature.asText()));
+
+        return switch (type) {
+            case "logistic-regression" -> logisticRegression(model, name, features);
+            case "tree-ensemble" -> treeEnsemble(model, name, features);
+            default -> throw new IllegalArgumentException("Unknown model type: " + type);
+        };
+    }
+
+    private static RiskModel logisticRegression(JsonNode model, String name, List<String> features) {
+        double[] weights = doubles(required(model, "weights"));
+        double[] imputations = model.has("imputations")
+                ? doubles(model.get("imputations"))
+                : new double[features.size()];
+        return new LogisticRegressionModel(name, features, model.path("intercept").asDouble(0), weights, imputations);
+    }
+
+    private static RiskModel treeEnsemble(JsonNode model, String name, List<String> features) {
+        JsonNode trees = required(model, "trees");
+
+        int nodeCount = 0;
+        for (JsonNode tree : trees) {
+            nodeCount += required(tree, "nodes").size();
+        }
+
+        int[] roots = new int[trees.size()];
+        int[] feature = new int[nodeCount];
+        double[] threshold = new double[nodeCount];
+        int[] yes = new int[nodeCount];
+        int[] no = new int[nodeCount];
+        int[] missing = new int[nodeCount];
+        double[] leaf = new double[nodeCount];
+        boolean[] seen = new boolean[nodeCount];
+
+        // Flatten: tree t's node id i becomes global node (offset of t) + i
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            JsonNode nodes = trees.get(t).get("nodes");
+            roots[t] = offset;
+
+            for (JsonNode node : nodes) {
+                int id = required(node, "id").asInt();
+                if (id < 0 || id >= nodes.size() || seen[offset + id]) {
+                    throw new IllegalArgumentException("Tree " + t + ": invalid or duplicate node id " + id);
+                }
+                int index = offset + id;
+                seen[index] = true;
+
+                if (node.has("leaf")) {
+                    feature[index] = TreeEnsembleModel.LEAF;
+                    leaf[index] = node.get("leaf").asDouble();
+                } else {
+                    String featureName = required(node, "feature").asText();
+                    feature[index] = features.indexOf(featureName);
+                    if (feature[index] < 0) {
+                        throw new IllegalArgumentException("Tree " + t + ": feature not declared: " + featureName);
+                    }
+                    threshold[index] = required(node, "threshold").asDouble();
+                    yes[index] = offset + child(node, "yes", nodes.size(), t);
+                    no[index] = offset + child(node, "no", nodes.size(), t);
+                    missing[index] = node.has("missing") ? offset + child(node, "missing", nodes.size(), t) : no[index];
+                }
+            }
+            offset += nodes.size();
+        }
+
+        return new TreeEnsembleModel(name, features, model.path("baseScore").asDouble(0), roots,
+                feature, threshold, yes, no, missing, leaf);
+    }
+
+    /**
+     * A child id, which must stay inside its own tree.
+     */
+    private static int child(JsonNode node, String field, int treeSize, int tree) {
+        int id = required(node, field).asInt();
+        if (id < 0 || id >= treeSize) {
+            throw new IllegalArgumentException("Tree " + tree + ": '" + field + "' points outside the tree: " + id);
+        }
+        return id;
+    }
+
+    private static JsonNode required(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            throw new IllegalArgumentException("Model file: missing field '" + field + "'");
+        }
+        return value;
+    }
+
+    private static double[] doubles(JsonNode array) {
+        double[] values = new double[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).asDouble();
+        }
+        return values;
+    }
+}
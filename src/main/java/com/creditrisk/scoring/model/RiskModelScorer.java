@@ -0,0 +1,145 @@
+package com.creditrisk.scoring.model;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MODEL SCORING STAGE (MICRO-BATCHED INFERENCE)
+ * =============================================
+ *
+ * Runs the configured RiskModel (if any) over all records of a poll with ONE predict()
+ * call: the features of the batch are written into one row-major double[], the model
+ * fills one double[] of probabilities. The single-record listener calls it with a
+ * batch of one; the batch listener with every new record of the poll.
+ *
+ * METRICS (/actuator/metrics, tag model=name:version):
+ * - risk.model.inference:                Latency of a whole predict() call (one per batch)
+ * - risk.model.record.latency.amortized: Batch latency / batch size in nanoseconds, recorded
+ *   ONCE per batch. An average cost per record, not a measured per-record latency: every
+ *   record of a batch waits for the whole predict() call.
+ *
+ * No model configured (risk-model.enabled=false and no RiskModel bean): predict()
+ * returns null and the rule-based score is used. Several RiskModel beans need one
+ * marked @Primary (see RiskModelConfig).
+ */
+@Component
+@Slf4j
+public class RiskModelScorer {
+
+    private final RiskModel model;
+    private final int[] featureCodes; // Per model column: index into RiskModelFeatures.ALL
+    private final Timer inferenceTimer;
+    private final DistributionSummary amortizedRecordLatency;
+
+    public RiskModelScorer(ObjectProvider<RiskModel> riskModel, MeterRegistry meterRegistry) {
+        this.model = uniqueModel(riskModel);
+        if (model == null) {
+            this.featureCodes = new int[0];
+            this.inferenceTimer = null;
+            this.amortizedRecordLatency = null;
+            return;
+        }
+
+        this.featureCodes = model.features().stream().mapToInt(RiskModelFeatures.ALL::indexOf).toArray();
+        this.inferenceTimer = meterRegistry.timer("risk.model.inference", "model", model.name());
+        this.amortizedRecordLatency = DistributionSummary.builder("risk.model.record.latency.amortized")
+                .description("predict() latency divided by the batch size, recorded once per batch")
+                .baseUnit("nanoseconds")
+                .tag("model", model.name())
+                .register(meterRegistry);
+        log.info("Risk model {} active (features {})", model.name(), model.features());
+    }
+
+    /**
+     * The single RiskModel bean, the @Primary one if there are several, or null if there is none.
+     */
+    private static RiskModel uniqueModel(ObjectProvider<RiskModel> riskModel) {
+        try {
+            return riskModel.getIfAvailable();
+        } catch (NoUniqueBeanDefinitionException e) {
+            throw new IllegalStateException("Several RiskModel beans " + e.getBeanNamesFound()
+                    + ": mark one @Primary or set risk-model.enabled=false", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return model != null;
+    }
+
+    /**
+     * @return Model name and version, or null if no model is configured
+     */
+    public String modelName() {
+        return model != null ? model.name() : null;
+    }
+
+    /**
+     * Predict the probability of default for a batch of applications.
+     *
+     * @return One probability per input (same order), or null if no model is configured
+     */
+    public double[] predict(List<RiskModelInput> inputs) {
+        if (model == null || inputs.isEmpty()) {
+            return null;
+        }
+
+        int rows = inputs.size();
+        int width = featureCodes.length;
+        double[] features = new double[rows * width];
+        for (int row = 0; row < rows; row++) {
+            RiskModelInput input = inputs.get(row);
+            for (int f = 0; f < width; f++) {
+                features[row * width + f] = feature(featureCodes[f], input);
+            }
+        }
+
+        double[] probabilities = new double[rows];
+        long start = System.nanoTime();
+        model.predict(features, rows, probabilities);
+        long elapsed = System.nanoTime() - start;
+
+        inferenceTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        amortizedRecordLatency.record((double) elapsed / rows);
+        return probabilities;
+    }
+
+    /**
+     * Risk score stored on the assessment for a model probability of default:
+     * PD x 100, two decimals (0.1234 -> 12.34).
+     */
+    public static BigDecimal riskScore(double probability) {
+        return BigDecimal.valueOf(probability * 100).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Suffix for the assessment notes: which model scored the application, and its PD.
+     */
+    public String notes(double probability) {
+        return String.format(" Model: %s, PD: %.4f", modelName(), probability);
+    }
+
+    /**
+     * Feature value by RiskModelFeatures.ALL index; NaN when missing.
+     */
+    private static double feature(int code, RiskModelInput input) {
+        double requested = input.requestedAmount() != null ? input.requestedAmount().doubleValue() : Double.NaN;
+        double income = input.annualIncome() != null ? input.annualIncome().doubleValue() : Double.NaN;
+        return switch (code) {
+            case 0 -> input.creditScore() != null ? input.creditScore() : Double.NaN; // creditScore
+            case 1 -> income != 0 ? requested / income : Double.NaN;                 // debtToIncome
+            case 2 -> requested;                                                       // requestedAmount
+            case 3 -> income;                                                          // annualIncome
+            default -> throw new IllegalStateException("Unknown feature code " + code);
+        };
+    }
+}
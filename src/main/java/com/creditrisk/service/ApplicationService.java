@@ -13,6 +13,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -60,6 +61,7 @@ public class ApplicationService {
     private final CreditApplicationRepository applicationRepository;
     private final OutboxEventRepository outboxEventRepository;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Submit a new credit application.
@@ -110,7 +112,8 @@ public class ApplicationService {
 
         // 3. Save event to OUTBOX table (SAME transaction as application save!)
         try {
-            saveToOutbox(event, applicationId, "CreditApplicationSubmitted", KafkaTopics.CREDIT_APPLICATION_SUBMITTED);
+            saveToOutbox(event, applicationId, applicationId,
+                    "CreditApplicationSubmitted", KafkaTopics.CREDIT_APPLICATION_SUBMITTED);
             log.info("Saved CreditApplicationSubmitted event to outbox: {}", applicationId);
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize event for outbox: {}", applicationId, e);
@@ -124,18 +127,22 @@ public class ApplicationService {
      * Save event to outbox table.
      * This is a helper method that serializes the event and saves it to the outbox.
      */
-    private void saveToOutbox(Object event, String eventId, String eventType, String topic)
+    private void saveToOutbox(Object event, String eventId, String aggregateId, String eventType, String topic)
             throws JsonProcessingException {
 
         String payload = objectMapper.writeValueAsString(event);
 
         OutboxEvent outboxEvent = new OutboxEvent();
         outboxEvent.setEventId(eventId);
+        outboxEvent.setAggregateId(aggregateId);
         outboxEvent.setEventType(eventType);
         outboxEvent.setPayload(payload);
         outboxEvent.setTopic(topic);
 
         outboxEventRepository.save(outboxEvent);
+
+        // Hand the row to the change stream once this transaction commits (see OutboxWakeupNotifier)
+        eventPublisher.publishEvent(new OutboxEventSaved(outboxEvent.getId(), outboxEvent.getPartitionBucket()));
     }
 
     /**
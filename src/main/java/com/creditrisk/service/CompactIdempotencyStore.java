@@ -0,0 +1,329 @@
+package com.creditrisk.service;
+
+import com.creditrisk.service.IdempotencyService.BatchClaim;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * COMPACT IDEMPOTENCY STORAGE
+ * ===========================
+ *
+ * The standard layout stores one Redis key per event:
+ *   idempotency:CreditApplicationSubmitted:2f1c...-36-char-uuid -> JSON string "RiskAssessmentConsumer:1638360000000"
+ * That is ~70 bytes of key, a JSON-quoted value, plus Redis' per-key overhead
+ * (key object, value object, expires entry) - roughly 200 bytes per event.
+ *
+ * The compact layout stores one HASH FIELD per event instead:
+ *   idem:{a}:19700 (hash, one per event type and day) -> field: 16 raw UUID bytes, value: 8 byte marker
+ * - Short event type codes ("a" instead of "CreditApplicationSubmitted")
+ * - UUIDs as 16 bytes instead of 36 characters (other IDs stay UTF-8)
+ * - Raw byte values, no JSON serializer
+ * - ONE expiry per day bucket instead of one per event
+ * That is roughly 40-60 bytes per event: 3-5x less memory for the same 7 days.
+ *
+ * PENDING CLAIMS WITH A LEASE (8 BYTE MARKER):
+ * ============================================
+ * Hash fields can't expire on their own, so the lease lives IN the value:
+ * - Final marker:   the processing timestamp (ms), top bit clear
+ * - Pending marker: the lease deadline (ms), top bit SET
+ * The scripts treat a pending marker whose deadline has passed as free (its consumer
+ * crashed between claim and commit) and a live one as IN_FLIGHT, like the pending
+ * keys of the standard layout. complete() turns the claim into a final marker.
+ *
+ * TRADE-OFFS:
+ * ===========
+ * - A lookup checks every live day bucket (done in one Lua script, one round trip)
+ * - The consumer name is not stored (getProcessingInfo reports "compact:{timestamp}",
+ *   or "pending:compact:{lease deadline}" for a claim in flight)
+ * - Entries live between TTL and TTL + one day (the bucket expires as a whole)
+ * - The hash tag {a} keeps all buckets of an event type in one Redis Cluster slot
+ *
+ * Switching modes starts with an empty history: keys written in the other mode are not seen.
+ */
+class CompactIdempotencyStore {
+
+    private static final Duration BUCKET_DURATION = Duration.ofDays(1);
+
+    // Short codes for known event types (unknown types use their full name)
+    private static final Map<String, String> EVENT_TYPE_CODES = Map.of(
+            "CreditApplicationSubmitted", "a",
+            "RiskAssessmentCompleted", "r"
+    );
+
+    // Top bit of the 8 byte marker: set = pending claim (value = lease deadline)
+    private static final long PENDING_FLAG = Long.MIN_VALUE;
+
+    /**
+     * Lua helper: the lease deadline of a pending marker, or nil for a final marker.
+     * Decoded byte by byte (ms timestamps fit a Lua double exactly).
+     */
+    private static final String LEASE_DEADLINE_FUNCTION =
+            "local function leaseDeadline(marker) " +
+            "  if #marker ~= 8 or string.byte(marker, 1) < 128 then return nil end " +
+            "  local deadline = string.byte(marker, 1) - 128 " +
+            "  for i = 2, 8 do deadline = deadline * 256 + string.byte(marker, i) end " +
+            "  return deadline " +
+            "end ";
+
+    /**
+     * Lua helper: the live marker of a field in any bucket, or nil.
+     * An expired pending marker is deleted on the way (its consumer never finished).
+     */
+    private static final String FIND_LIVE_FUNCTION = LEASE_DEADLINE_FUNCTION +
+            "local function findLive(field, now) " +
+            "  for _, key in ipairs(KEYS) do " +
+            "    local previous = redis.call('HGET', key, field) " +
+            "    if previous then " +
+            "      local deadline = leaseDeadline(previous) " +
+            "      if deadline and deadline <= now then " +
+            "        redis.call('HDEL', key, field) " +
+            "      else " +
+            "        return previous " +
+            "      end " +
+            "    end " +
+            "  end " +
+            "  return nil " +
+            "end ";
+
+    /**
+     * Return the live marker in any bucket, or claim the field in the current bucket.
+     * KEYS = live buckets, newest first.
+     * ARGV[1] = field, ARGV[2] = marker, ARGV[3] = expiry (ms) of KEYS[1], ARGV[4] = now (ms)
+     */
+    private static final RedisScript<byte[]> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            FIND_LIVE_FUNCTION +
+            "local previous = findLive(ARGV[1], tonumber(ARGV[4])) " +
+            "if previous then return previous end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[3]) end " +
+            "return false",
+            byte[].class);
+
+    /**
+     * Return the first existing marker in any live bucket (read-only).
+     * KEYS = live buckets. ARGV[1] = field
+     */
+    private static final RedisScript<byte[]> LOOKUP_SCRIPT = new DefaultRedisScript<>(
+            "for _, key in ipairs(KEYS) do " +
+            "  local previous = redis.call('HGET', key, ARGV[1]) " +
+            "  if previous then return previous end " +
+            "end " +
+            "return false",
+            byte[].class);
+
+    /**
+     * Remove a PENDING claim from every live bucket (rollback). A final marker is kept.
+     * KEYS = live buckets. ARGV[1] = field
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            LEASE_DEADLINE_FUNCTION +
+            "local removed = 0 " +
+            "for _, key in ipairs(KEYS) do " +
+            "  local previous = redis.call('HGET', key, ARGV[1]) " +
+            "  if previous and leaseDeadline(previous) then removed = removed + redis.call('HDEL', key, ARGV[1]) end " +
+            "end " +
+            "return removed",
+            Long.class);
+
+    /**
+     * Replace claims with the final marker in the current bucket (after commit).
+     * KEYS = live buckets, newest first. ARGV[1] = final marker, ARGV[2] = expiry (ms), ARGV[3..] = fields
+     */
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 3, #ARGV do " +
+            "  for _, key in ipairs(KEYS) do redis.call('HDEL', key, ARGV[i]) end " +
+            "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[1]) " +
+            "end " +
+            "if redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return #ARGV - 2",
+            Long.class);
+
+    /**
+     * Claim many fields at once. Returns the 1-based ARGV positions (>= 4) that were claimed,
+     * and NEGATED positions of fields held by a live pending claim (in flight).
+     * KEYS = live buckets, newest first.
+     * ARGV[1] = marker, ARGV[2] = expiry (ms), ARGV[3] = now (ms), ARGV[4..] = fields
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE_ALL_SCRIPT = new DefaultRedisScript<>(
+            FIND_LIVE_FUNCTION +
+            "local result = {} " +
+            "local now = tonumber(ARGV[3]) " +
+            "local claimed = false " +
+            "for i = 4, #ARGV do " +
+            "  local previous = findLive(ARGV[i], now) " +
+            "  if not previous then " +
+            "    redis.call('HSET', KEYS[1], ARGV[i], ARGV[1]) " +
+            "    table.insert(result, i) " +
+            "    claimed = true " +
+            "  elseif leaseDeadline(previous) then " +
+            "    table.insert(result, -i) " +
+            "  end " +
+            "end " +
+            "if claimed and redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return result",
+            List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration ttl;
+
+    CompactIdempotencyStore(RedisTemplate<String, Object> redisTemplate, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Claim an event with a final marker, or with a pending marker if a lease is given.
+     *
+     * @param lease Lease of a pending claim (claim -> complete / release), or null for a final marker
+     * @return null if claimed, otherwise the existing marker as "compact:{timestamp}"
+     *         (or "pending:compact:{lease deadline}" for a claim still in flight)
+     */
+    String acquire(String eventType, String eventId, long now, Duration lease) {
+        byte[] previous = redisTemplate.execute(ACQUIRE_SCRIPT, RedisSerializer.byteArray(), RedisSerializer.byteArray(),
+                liveBuckets(eventType, now), field(eventId), marker(now, lease), expiryMillis(now), ascii(now));
+        return previous != null ? describe(previous) : null;
+    }
+
+    /**
+     * @return The existing marker as "compact:{timestamp}", or null if the event was never claimed
+     */
+    String lookup(String eventType, String eventId) {
+        long now = System.currentTimeMillis();
+        byte[] previous = redisTemplate.execute(LOOKUP_SCRIPT, RedisSerializer.byteArray(), RedisSerializer.byteArray(),
+                liveBuckets(eventType, now), field(eventId));
+        return previous != null ? describe(previous) : null;
+    }
+
+    /**
+     * Forget a pending claim (after a rollback), so a redelivery is processed again.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void release(String eventType, String eventId) {
+        // Integer reply; the raw result serializer is never used
+        redisTemplate.execute(RELEASE_SCRIPT, RedisSerializer.byteArray(), (RedisSerializer) RedisSerializer.byteArray(),
+                liveBuckets(eventType, System.currentTimeMillis()), field(eventId));
+    }
+
+    /**
+     * Turn claims into final markers (after the processing transaction committed).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void completeAll(String eventType, Collection<String> eventIds, long now) {
+        List<Object> args = new ArrayList<>(eventIds.size() + 2);
+        args.add(marker(now, null));
+        args.add(expiryMillis(now));
+        eventIds.forEach(id -> args.add(field(id)));
+
+        // Integer reply; the raw result serializer is never used
+        redisTemplate.execute(COMPLETE_SCRIPT, RedisSerializer.byteArray(), (RedisSerializer) RedisSerializer.byteArray(),
+                liveBuckets(eventType, now), args.toArray());
+    }
+
+    /**
+     * Claim a batch of events in one script call.
+     *
+     * @param lease Lease of pending claims, or null for final markers
+     * @return The IDs that were new (in the order given) and the IDs held by a live pending claim
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BatchClaim acquireAll(String eventType, List<String> eventIds, long now, Duration lease) {
+        Object[] args = new Object[eventIds.size() + 3];
+        args[0] = marker(now, lease);
+        args[1] = expiryMillis(now);
+        args[2] = ascii(now);
+        for (int i = 0; i < eventIds.size(); i++) {
+            args[i + 3] = field(eventIds.get(i));
+        }
+
+        // Positions come back as integers; the raw serializer is never used for them
+        List<Object> positions = redisTemplate.execute(ACQUIRE_ALL_SCRIPT, RedisSerializer.byteArray(),
+                (RedisSerializer) RedisSerializer.byteArray(), liveBuckets(eventType, now), args);
+
+        Set<String> acquired = new LinkedHashSet<>();
+        Set<String> inFlight = new LinkedHashSet<>();
+        if (positions != null) {
+            for (Object position : positions) {
+                // Lua ARGV is 1-based and fields start at ARGV[4]; negative = in flight
+                int argv = ((Number) position).intValue();
+                if (argv > 0) {
+                    acquired.add(eventIds.get(argv - 4));
+                } else {
+                    inFlight.add(eventIds.get(-argv - 4));
+                }
+            }
+        }
+        return new BatchClaim(acquired, inFlight);
+    }
+
+    /**
+     * Hashes that may still hold entries younger than the TTL, newest (current) first.
+     */
+    private List<String> liveBuckets(String eventType, long now) {
+        String prefix = "idem:{" + EVENT_TYPE_CODES.getOrDefault(eventType, eventType) + "}:";
+        long current = now / BUCKET_DURATION.toMillis();
+        long bucketCount = ttl.toMillis() / BUCKET_DURATION.toMillis() + 1;
+
+        List<String> keys = new ArrayList<>((int) bucketCount);
+        for (long i = 0; i < bucketCount; i++) {
+            keys.add(prefix + (current - i));
+        }
+        return keys;
+    }
+
+    /**
+     * The current bucket expires TTL after the END of its day, so every entry lives at least TTL.
+     */
+    private byte[] expiryMillis(long now) {
+        long bucketEnd = (now / BUCKET_DURATION.toMillis() + 1) * BUCKET_DURATION.toMillis();
+        return Long.toString(bucketEnd - now + ttl.toMillis()).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 16 raw bytes for UUIDs, UTF-8 for anything else.
+     */
+    private static byte[] field(String eventId) {
+        if (eventId.length() == 36) {
+            try {
+                UUID uuid = UUID.fromString(eventId);
+                return ByteBuffer.allocate(16)
+                        .putLong(uuid.getMostSignificantBits())
+                        .putLong(uuid.getLeastSignificantBits())
+                        .array();
+            } catch (IllegalArgumentException e) {
+                // Not a UUID after all
+            }
+        }
+        return eventId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Final marker: the timestamp. Pending marker: the lease deadline with the top bit set.
+     */
+    private static byte[] marker(long now, Duration lease) {
+        long value = lease != null ? (now + lease.toMillis()) | PENDING_FLAG : now;
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String describe(byte[] marker) {
+        long value = marker.length == Long.BYTES ? ByteBuffer.wrap(marker).getLong() : 0;
+        return value < 0 ? "pending:compact:" + (value & ~PENDING_FLAG) : "compact:" + value;
+    }
+}
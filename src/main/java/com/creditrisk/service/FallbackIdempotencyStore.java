@@ -0,0 +1,129 @@
+package com.creditrisk.service;
+
+import com.creditrisk.model.ProcessedEvent;
+import com.creditrisk.repository.ProcessedEventRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * FALLBACK IDEMPOTENCY STORE (WHILE REDIS IS DOWN)
+ * ================================================
+ *
+ * IdempotencyService used to "fail open" on every Redis error: a Redis blip
+ * meant every redelivered event was processed again (duplicate assessments,
+ * duplicate outbox rows). While the Redis circuit breaker is open, claims go
+ * through two local tiers instead:
+ *
+ * 1. IN-MEMORY WINDOW (Caffeine): key -> marker, for events seen on this node
+ *    during the outage. Catches the common case (retries on the same consumer)
+ *    without touching the database.
+ * 2. DATABASE (processed_events): unique constraint on eventId. Shared by all
+ *    nodes, so it also catches redeliveries to another consumer after a rebalance.
+ *    The row is written in the CONSUMER'S transaction, so a rollback removes it.
+ *
+ * Events claimed here are replayed into Redis once it is back (see IdempotencyService),
+ * so a redelivery AFTER the outage is still recognized.
+ */
+@Component
+@Slf4j
+public class FallbackIdempotencyStore {
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final Cache<String, String> window;
+
+    public FallbackIdempotencyStore(ProcessedEventRepository processedEventRepository,
+                                    @Value("${idempotency.fallback.window-minutes:60}") long windowMinutes,
+                                    @Value("${idempotency.fallback.window-size:100000}") long windowSize) {
+        this.processedEventRepository = processedEventRepository;
+        this.window = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(windowMinutes))
+                .maximumSize(windowSize)
+                .build();
+    }
+
+    /**
+     * Claim an event without Redis.
+     *
+     * @param key Idempotency key (idempotency:{eventType}:{eventId})
+     * @param marker Marker to store ("consumerName:timestamp")
+     * @return null if claimed, otherwise the existing marker
+     */
+    String acquire(String key, String eventType, String eventId, String consumerName, String marker) {
+        // Tier 1: this node's in-memory window
+        String previous = window.asMap().putIfAbsent(key, marker);
+        if (previous != null) {
+            return previous;
+        }
+
+        // Tier 2: the shared processed_events table
+        try {
+            Optional<ProcessedEvent> existing = processedEventRepository.findByEventId(eventId);
+            if (existing.isPresent()) {
+                ProcessedEvent processed = existing.get();
+                String dbMarker = processed.getConsumerName() + ":" + processed.getProcessedAt().toEpochMilli();
+                window.put(key, dbMarker);
+                return dbMarker;
+            }
+
+            ProcessedEvent processedEvent = new ProcessedEvent();
+            processedEvent.setEventId(eventId);
+            processedEvent.setEventType(eventType);
+            processedEvent.setConsumerName(consumerName);
+            processedEventRepository.saveAndFlush(processedEvent);
+            return null;
+
+        } catch (DataIntegrityViolationException e) {
+            // Another consumer inserted the same eventId concurrently.
+            // The consumer's transaction is rollback-only now: Kafka redelivers, and the retry finds the row.
+            // Drop our own marker, or every redelivery on this node would read it as IN_FLIGHT
+            window.invalidate(key);
+            log.warn("Event claimed concurrently by another consumer (fallback store): {}:{}", eventType, eventId);
+            return "unknown:" + System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            window.invalidate(key); // Not durably claimed
+            throw e;
+        }
+    }
+
+    /**
+     * @return The marker of a processed event, or null if unknown
+     */
+    String lookup(String key, String eventId) {
+        String marker = window.getIfPresent(key);
+        if (marker != null) {
+            return marker;
+        }
+        return processedEventRepository.findByEventId(eventId)
+                .map(processed -> processed.getConsumerName() + ":" + processed.getProcessedAt().toEpochMilli())
+                .orElse(null);
+    }
+
+    /**
+     * Replace the marker after the processing transaction committed.
+     */
+    void complete(String key, String marker) {
+        window.put(key, marker);
+    }
+
+    /**
+     * Forget a claim after a rollback (the processed_events row is rolled back with the transaction).
+     */
+    void release(String key) {
+        window.invalidate(key);
+    }
+
+    /**
+     * Claims made during the outage, for replaying them into Redis.
+     */
+    Map<String, String> claimsInWindow() {
+        return Map.copyOf(window.asMap());
+    }
+}
@@ -1,11 +1,26 @@
 package com.creditrisk.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Redis-based Idempotency Tracking Service
@@ -59,9 +74,34 @@ import java.time.Duration;
  * - Short enough to not waste memory
  * - Kafka typically retains messages for 7 days by default
  *
+ * ONE ROUND TRIP PER EVENT:
+ * =========================
+ * tryAcquire() used to call hasKey and then setIfAbsent: two Redis round trips,
+ * and the first one is redundant because SET NX is already atomic.
+ * acquire() runs a small Lua script instead (GET, and SET NX PX if missing),
+ * which claims the key AND returns the previous marker in ONE round trip.
+ * A "pending:" marker (claimForTransaction) means another consumer is still
+ * processing the event (IN_FLIGHT); any other marker is a finished DUPLICATE.
+ *
+ * Batch listeners use tryAcquireAll(): every SET NX of a poll batch is sent in
+ * ONE pipeline, so duplicate filtering costs one round trip per poll, not per record.
+ *
+ * COMPACT STORAGE MODE (optional, idempotency.storage-mode: compact):
+ * ===================================================================
+ * Day-bucketed hashes with short type codes, 16 byte UUID fields and raw 8 byte
+ * markers (timestamp, or lease deadline of a pending claim) instead of one JSON key
+ * per event (see CompactIdempotencyStore).
+ * Several times less Redis memory for the same 7 day window.
+ *
  * FAILOVER STRATEGY:
  * ==================
- * If Redis is down:
+ * With idempotency.fallback.enabled (default):
+ * - A circuit breaker (RedisCircuitBreaker) opens after repeated Redis errors
+ * - While open, claims go to FallbackIdempotencyStore: in-memory window first,
+ *   then the processed_events table (unique eventId) - no waiting for Redis timeouts
+ * - When Redis is back, the claims made during the outage are replayed into Redis
+ *
+ * With the fallback disabled, if Redis is down:
  * - Assume NOT processed (fail open)
  * - Allow event processing (potential duplicate)
  * - Better to process twice than not at all
@@ -73,6 +113,29 @@ import java.time.Duration;
 public class IdempotencyService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final FallbackIdempotencyStore fallbackStore;
+
+    @Value("${idempotency.fallback.enabled:true}")
+    private boolean fallbackEnabled;
+
+    @Value("${idempotency.fallback.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${idempotency.fallback.open-ms:30000}")
+    private long breakerOpenMs;
+
+    // Null when the fallback store is disabled (then Redis errors fail open)
+    private RedisCircuitBreaker circuitBreaker;
+
+    // Lease of a pending claim: must be longer than processing one event takes
+    @Value("${idempotency.claim-lease-ms:300000}")
+    private long claimLeaseMs;
+
+    @Value("${idempotency.storage-mode:standard}")
+    private String storageMode;
+
+    // Null in standard storage mode
+    private CompactIdempotencyStore compactStore;
 
     // TTL for idempotency records (7 days)
     private static final Duration IDEMPOTENCY_TTL = Duration.ofDays(7);
@@ -80,6 +143,66 @@ public class IdempotencyService {
     // Key prefix for idempotency tracking
     private static final String IDEMPOTENCY_PREFIX = "idempotency:";
 
+    // Marker prefix of a claim whose transaction has not finished yet (see claimForTransaction)
+    private static final String PENDING_PREFIX = "pending:";
+
+    /**
+     * Delete the key only if it still holds the given claim marker.
+     * KEYS[1] = idempotency key, ARGV[1] = claim marker
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * Atomic claim in one round trip.
+     * KEYS[1] = idempotency key, ARGV[1] = marker value, ARGV[2] = TTL in milliseconds
+     * Returns nil if the key was claimed, otherwise the existing marker.
+     */
+    private static final RedisScript<String> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local previous = redis.call('GET', KEYS[1]) " +
+            "if previous then return previous end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "return false",
+            String.class);
+
+    /**
+     * Result of an idempotency claim.
+     */
+    public enum AcquireResult {
+        /** First time this event is seen - process it */
+        ACQUIRED,
+        /** Already processed - skip it */
+        DUPLICATE,
+        /** Claimed by another consumer whose transaction has not finished - retry later, don't skip */
+        IN_FLIGHT
+    }
+
+    /**
+     * Result of a batch claim.
+     *
+     * @param acquired IDs this consumer should process, in the order given
+     * @param inFlight IDs claimed by another consumer whose transaction has not finished
+     */
+    public record BatchClaim(Set<String> acquired, Set<String> inFlight) {
+    }
+
+    /**
+     * Set up the circuit breaker and the storage mode.
+     */
+    @PostConstruct
+    public void init() {
+        if (fallbackEnabled) {
+            circuitBreaker = new RedisCircuitBreaker(breakerFailureThreshold, breakerOpenMs);
+        }
+
+        if ("compact".equalsIgnoreCase(storageMode)) {
+            compactStore = new CompactIdempotencyStore(redisTemplate, IDEMPOTENCY_TTL);
+            log.info("Idempotency storage mode: compact (day-bucketed hashes)");
+        }
+    }
+
     /**
      * Check if event has already been processed.
      *
@@ -93,8 +216,15 @@ public class IdempotencyService {
         String key = buildKey(eventType, eventId);
 
         try {
-            Boolean exists = redisTemplate.hasKey(key);
-            boolean processed = Boolean.TRUE.equals(exists);
+            boolean processed;
+            if (!redisAvailable()) {
+                processed = fallbackStore.lookup(key, eventId) != null;
+            } else {
+                processed = compactStore != null
+                        ? compactStore.lookup(eventType, eventId) != null
+                        : Boolean.TRUE.equals(redisTemplate.hasKey(key));
+                redisSucceeded();
+            }
 
             if (processed) {
                 log.debug("Event already processed (idempotency check): {}:{}", eventType, eventId);
@@ -103,6 +233,7 @@ public class IdempotencyService {
             return processed;
 
         } catch (Exception e) {
+            redisFailed();
             log.error("Redis error checking idempotency, treating as NOT processed: {}:{}",
                      eventType, eventId, e);
             // FAILOVER: On Redis error, assume NOT processed
@@ -136,8 +267,9 @@ public class IdempotencyService {
             // SET key value NX EX ttl
             // - NX: Only set if key doesn't exist (atomic check-and-set)
             // - EX: Set expiration in seconds
-            Boolean success = redisTemplate.opsForValue()
-                .setIfAbsent(key, value, IDEMPOTENCY_TTL);
+            Boolean success = compactStore != null
+                ? compactStore.acquire(eventType, eventId, System.currentTimeMillis(), null) == null
+                : redisTemplate.opsForValue().setIfAbsent(key, value, IDEMPOTENCY_TTL);
 
             if (Boolean.TRUE.equals(success)) {
                 log.debug("Marked event as processed: {}:{} by {}", eventType, eventId, consumerName);
@@ -178,13 +310,467 @@ public class IdempotencyService {
      * @return true if new event (process it), false if duplicate (skip it)
      */
     public boolean tryAcquire(String eventType, String eventId, String consumerName) {
-        // First check if already processed (fast path - single Redis call)
-        if (isProcessed(eventType, eventId)) {
-            return false;
+        return acquire(eventType, eventId, consumerName) == AcquireResult.ACQUIRED;
+    }
+
+    /**
+     * Claim an event in ONE Redis round trip (see ACQUIRE_SCRIPT).
+     *
+     * @param eventType Type of event
+     * @param eventId Unique identifier
+     * @param consumerName Name of consumer
+     * @return ACQUIRED if new, DUPLICATE or IN_FLIGHT if someone else already claimed it
+     */
+    public AcquireResult acquire(String eventType, String eventId, String consumerName) {
+        long now = System.currentTimeMillis();
+        // Value stored: consumerName + timestamp (for debugging and in-flight detection)
+        return acquireMarker(eventType, eventId, consumerName,
+                String.format("%s:%d", consumerName, now), IDEMPOTENCY_TTL, now);
+    }
+
+    /**
+     * Claim an event for the CURRENT TRANSACTION (claim -> complete / release).
+     *
+     * MARK-BEFORE-WORK PROBLEM:
+     * =========================
+     * tryAcquire() marks the event as processed BEFORE the work is done.
+     * If the transaction then rolls back, the key stays for 7 days and every
+     * Kafka redelivery is skipped - the event is silently lost.
+     *
+     * LIFECYCLE:
+     * ==========
+     * 1. CLAIM:    "pending:" marker with a short lease (idempotency.claim-lease-ms)
+     * 2. COMMIT:   marker replaced by the final marker with the full 7 day TTL
+     * 3. ROLLBACK: marker deleted, so the redelivery is processed right away
+     * 4. CRASH:    nobody completes or releases - the lease simply expires
+     *
+     * While the claim is pending, other consumers get IN_FLIGHT and must retry later
+     * (EventInFlightException) - if this transaction rolls back, they have to process it.
+     * Steps 2 and 3 run automatically via a TransactionSynchronization; without an
+     * active transaction this behaves like acquire().
+     *
+     * USAGE IN CONSUMERS (inside @Transactional):
+     * ===========================================
+     * AcquireResult claim = idempotencyService.claimForTransaction("EventType", eventId, "ConsumerName");
+     * if (claim == AcquireResult.IN_FLIGHT) {
+     *     throw new EventInFlightException("EventType", eventId); // Redelivered after a backoff
+     * }
+     * if (claim == AcquireResult.DUPLICATE) {
+     *     return;
+     * }
+     *
+     * @param eventType Type of event
+     * @param eventId Unique identifier
+     * @param consumerName Name of consumer
+     * @return ACQUIRED if this consumer should process the event
+     */
+    public AcquireResult claimForTransaction(String eventType, String eventId, String consumerName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return acquire(eventType, eventId, consumerName);
+        }
+
+        long now = System.currentTimeMillis();
+        String claimMarker = String.format("%s%s:%d", PENDING_PREFIX, consumerName, now);
+        AcquireResult result = acquireMarker(eventType, eventId, consumerName, claimMarker, claimLease(), now);
+
+        if (result == AcquireResult.ACQUIRED) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        complete(eventType, eventId, consumerName);
+                    } else {
+                        release(eventType, eventId, claimMarker);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Turn a pending claim into the final "processed" marker with the full TTL.
+     * Called after the processing transaction committed.
+     */
+    private void complete(String eventType, String eventId, String consumerName) {
+        String value = String.format("%s:%d", consumerName, System.currentTimeMillis());
+        if (circuitBreaker != null) {
+            fallbackStore.complete(buildKey(eventType, eventId), value);
+        }
+        if (!redisAvailable()) {
+            return; // Redis down: replayed later
         }
 
-        // Try to mark as processed (atomic check-and-set)
-        return markAsProcessed(eventType, eventId, consumerName);
+        // redisAvailable() may have taken the breaker's single HALF_OPEN trial call:
+        // report the outcome, or the breaker never leaves HALF_OPEN
+        try {
+            if (compactStore != null) {
+                compactStore.completeAll(eventType, List.of(eventId), System.currentTimeMillis());
+            } else {
+                redisTemplate.opsForValue().set(buildKey(eventType, eventId), value, IDEMPOTENCY_TTL);
+            }
+            redisSucceeded();
+            log.debug("Completed idempotency claim: {}:{} by {}", eventType, eventId, consumerName);
+        } catch (Exception e) {
+            redisFailed();
+            // Not fatal: the claim lease expires (the fallback store replays the final marker),
+            // and the offset is already committed
+            log.error("Redis error completing idempotency claim: {}:{}", eventType, eventId, e);
+        }
+    }
+
+    /**
+     * Drop a pending claim after a rollback so the redelivery can be processed immediately.
+     * Only deletes the key if it still holds OUR claim marker.
+     */
+    private void release(String eventType, String eventId, String claimMarker) {
+        if (circuitBreaker != null) {
+            fallbackStore.release(buildKey(eventType, eventId));
+        }
+
+        try {
+            if (compactStore != null) {
+                compactStore.release(eventType, eventId);
+            } else {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(buildKey(eventType, eventId)), claimMarker);
+            }
+            log.info("Released idempotency claim after rollback: {}:{}", eventType, eventId);
+        } catch (Exception e) {
+            // Not fatal: the redelivery is processed once the claim lease expires
+            log.error("Redis error releasing idempotency claim: {}:{}", eventType, eventId, e);
+        }
+    }
+
+    /**
+     * Claim the key with the given marker and TTL, and classify the existing marker if any.
+     */
+    private AcquireResult acquireMarker(String eventType, String eventId, String consumerName,
+                                        String value, Duration ttl, long now) {
+        String key = buildKey(eventType, eventId);
+
+        try {
+            String previous = claim(key, eventType, eventId, consumerName, value, ttl, now);
+
+            if (previous == null) {
+                log.debug("Marked event as processed: {}:{} ({})", eventType, eventId, value);
+                return AcquireResult.ACQUIRED;
+            }
+
+            // Only a pending claim is in flight: a final marker means the work has committed.
+            // (Both storage modes report a live pending claim as "pending:...", an expired one as free.)
+            if (previous.startsWith(PENDING_PREFIX)) {
+                log.warn("Event is being processed by another consumer ({}): {}:{}", previous, eventType, eventId);
+                return AcquireResult.IN_FLIGHT;
+            }
+
+            log.debug("Event already processed (idempotency check): {}:{} by {}", eventType, eventId, previous);
+            return AcquireResult.DUPLICATE;
+
+        } catch (Exception e) {
+            log.error("Redis error acquiring idempotency key, treating as NOT processed: {}:{}",
+                     eventType, eventId, e);
+            // FAILOVER: On Redis error, process the event (potential duplicate)
+            return AcquireResult.ACQUIRED;
+        }
+    }
+
+    /**
+     * Claim in Redis, or in the fallback store while Redis is failing.
+     *
+     * @return null if the key was claimed, otherwise the existing marker
+     */
+    private String claim(String key, String eventType, String eventId, String consumerName,
+                         String value, Duration ttl, long now) {
+        if (!redisAvailable()) {
+            return fallbackStore.acquire(key, eventType, eventId, consumerName, value);
+        }
+
+        try {
+            String previous;
+            if (compactStore != null) {
+                previous = compactStore.acquire(eventType, eventId, now,
+                        value.startsWith(PENDING_PREFIX) ? ttl : null);
+            } else {
+                previous = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(key), value, ttl.toMillis());
+            }
+            redisSucceeded();
+            return previous;
+
+        } catch (RuntimeException e) {
+            if (circuitBreaker == null) {
+                throw e; // Fallback disabled: fail open (see acquireMarker)
+            }
+            redisFailed();
+            log.warn("Redis error acquiring idempotency key, using fallback store: {}:{} ({})",
+                    eventType, eventId, e.getMessage());
+            return fallbackStore.acquire(key, eventType, eventId, consumerName, value);
+        }
+    }
+
+    /**
+     * Claim a whole batch of events in ONE Redis round trip (pipelined SET NX).
+     *
+     * Pipelining (instead of one multi-key Lua script) keeps this working on a
+     * Redis Cluster, where the keys of a batch live in different hash slots.
+     *
+     * USAGE IN BATCH LISTENERS:
+     * =========================
+     * Set<String> fresh = idempotencyService.tryAcquireAll("EventType", ids, "ConsumerName");
+     * events.stream().filter(e -> fresh.contains(e.getId()))...
+     *
+     * @param eventType Type of event
+     * @param eventIds Unique identifiers of the batch (duplicates inside the batch are claimed once)
+     * @param consumerName Name of consumer
+     * @return The IDs that are new (process them), in the order given
+     */
+    public Set<String> tryAcquireAll(String eventType, Collection<String> eventIds, String consumerName) {
+        String value = String.format("%s:%d", consumerName, System.currentTimeMillis());
+        return acquireAll(eventType, eventIds, consumerName, value, IDEMPOTENCY_TTL).acquired();
+    }
+
+    /**
+     * Batch version of claimForTransaction(): claim a whole poll batch with a lease,
+     * complete all claims on commit, release them all on rollback.
+     *
+     * If inFlight() is not empty, the caller should fail the batch (EventInFlightException):
+     * the rollback releases this batch's claims and the redelivery claims again.
+     *
+     * @param eventType Type of event
+     * @param eventIds Unique identifiers of the batch
+     * @param consumerName Name of consumer
+     * @return The IDs to process and the IDs still in flight elsewhere
+     */
+    public BatchClaim claimAllForTransaction(String eventType, Collection<String> eventIds, String consumerName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Final markers, nothing to release: failing the batch would lose the acquired events
+            return new BatchClaim(tryAcquireAll(eventType, eventIds, consumerName), Set.of());
+        }
+
+        String claimMarker = String.format("%s%s:%d", PENDING_PREFIX, consumerName, System.currentTimeMillis());
+        BatchClaim claim = acquireAll(eventType, eventIds, consumerName, claimMarker, claimLease());
+        Set<String> acquired = claim.acquired();
+
+        if (!acquired.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        completeAll(eventType, acquired, consumerName);
+                    } else {
+                        acquired.forEach(id -> release(eventType, id, claimMarker));
+                    }
+                }
+            });
+        }
+        return claim;
+    }
+
+    /**
+     * Replace a batch of pending claims with final markers (one pipeline).
+     */
+    private void completeAll(String eventType, Set<String> ids, String consumerName) {
+        String value = String.format("%s:%d", consumerName, System.currentTimeMillis());
+        if (circuitBreaker != null) {
+            ids.forEach(id -> fallbackStore.complete(buildKey(eventType, id), value));
+        }
+        if (!redisAvailable()) {
+            return; // Redis down: replayed later
+        }
+
+        try {
+            if (compactStore != null) {
+                // Same-slot buckets (hash tag): one script completes the whole batch
+                compactStore.completeAll(eventType, ids, System.currentTimeMillis());
+                redisSucceeded();
+                return;
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                    for (String id : ids) {
+                        redis.opsForValue().set(buildKey(eventType, id), value, IDEMPOTENCY_TTL);
+                    }
+                    return null;
+                }
+            });
+            redisSucceeded(); // May have been the HALF_OPEN trial call (see complete())
+        } catch (Exception e) {
+            redisFailed();
+            // Not fatal: the claim leases expire, and the offsets are already committed
+            log.error("Redis error completing {} idempotency claims: {}", ids.size(), eventType, e);
+        }
+    }
+
+    /**
+     * Claim every ID of a batch with the given marker and TTL (pipelined SET NX).
+     * IDs that were taken are classified (in flight or duplicate) with one more
+     * round trip - only when the batch has any.
+     */
+    private BatchClaim acquireAll(String eventType, Collection<String> eventIds, String consumerName,
+                                  String value, Duration ttl) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(eventIds));
+        if (ids.isEmpty()) {
+            return new BatchClaim(Set.of(), Set.of());
+        }
+        if (!redisAvailable()) {
+            return acquireAllInFallback(eventType, ids, consumerName, value);
+        }
+
+        try {
+            if (compactStore != null) {
+                // Same-slot buckets (hash tag): one script claims AND classifies the whole batch
+                BatchClaim claim = compactStore.acquireAll(eventType, ids, System.currentTimeMillis(),
+                        value.startsWith(PENDING_PREFIX) ? ttl : null);
+                redisSucceeded();
+                logSkippedDuplicates(eventType, ids.size() - claim.inFlight().size(), claim.acquired().size());
+                return claim;
+            }
+
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                    for (String id : ids) {
+                        redis.opsForValue().setIfAbsent(buildKey(eventType, id), value, ttl);
+                    }
+                    return null; // Results are collected by executePipelined
+                }
+            });
+
+            redisSucceeded();
+
+            Set<String> acquired = new LinkedHashSet<>();
+            List<String> taken = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                if (Boolean.TRUE.equals(results.get(i))) {
+                    acquired.add(ids.get(i));
+                } else {
+                    taken.add(ids.get(i));
+                }
+            }
+
+            Set<String> inFlight = inFlightIds(eventType, taken);
+            logSkippedDuplicates(eventType, ids.size() - inFlight.size(), acquired.size());
+            return new BatchClaim(acquired, inFlight);
+
+        } catch (Exception e) {
+            if (circuitBreaker != null) {
+                redisFailed();
+                log.warn("Redis error acquiring {} idempotency keys, using fallback store: {}", ids.size(), e.getMessage());
+                return acquireAllInFallback(eventType, ids, consumerName, value);
+            }
+            log.error("Redis error acquiring {} idempotency keys, treating all as NOT processed: {}",
+                     ids.size(), eventType, e);
+            // FAILOVER: On Redis error, process the whole batch (potential duplicates)
+            return new BatchClaim(new LinkedHashSet<>(ids), Set.of());
+        }
+    }
+
+    /**
+     * Which of the taken IDs are held by a pending claim (one MGET).
+     * A key that is gone by now was released after a rollback: also retry it.
+     */
+    private Set<String> inFlightIds(String eventType, List<String> takenIds) {
+        if (takenIds.isEmpty()) {
+            return Set.of();
+        }
+
+        List<Object> markers = redisTemplate.opsForValue().multiGet(
+                takenIds.stream().map(id -> buildKey(eventType, id)).toList());
+        Set<String> inFlight = new LinkedHashSet<>();
+        for (int i = 0; i < takenIds.size(); i++) {
+            Object marker = markers != null ? markers.get(i) : null;
+            if (marker == null || marker.toString().startsWith(PENDING_PREFIX)) {
+                inFlight.add(takenIds.get(i));
+            }
+        }
+        return inFlight;
+    }
+
+    private BatchClaim acquireAllInFallback(String eventType, List<String> ids, String consumerName, String value) {
+        Set<String> acquired = new LinkedHashSet<>();
+        Set<String> inFlight = new LinkedHashSet<>();
+        for (String id : ids) {
+            String previous = fallbackStore.acquire(buildKey(eventType, id), eventType, id, consumerName, value);
+            if (previous == null) {
+                acquired.add(id);
+            } else if (previous.startsWith(PENDING_PREFIX)) {
+                inFlight.add(id);
+            }
+        }
+        logSkippedDuplicates(eventType, ids.size() - inFlight.size(), acquired.size());
+        return new BatchClaim(acquired, inFlight);
+    }
+
+    /**
+     * @return false while the circuit breaker keeps Redis open (use the fallback store)
+     */
+    private boolean redisAvailable() {
+        return circuitBreaker == null || circuitBreaker.allowRequest();
+    }
+
+    private void redisSucceeded() {
+        if (circuitBreaker != null && circuitBreaker.onSuccess()) {
+            // Redis is back: copy the claims made during the outage, off the consumer thread
+            CompletableFuture.runAsync(this::replayFallbackClaims);
+        }
+    }
+
+    private void redisFailed() {
+        if (circuitBreaker != null) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    /**
+     * Write the claims made during the outage into Redis (SET NX, never overwriting),
+     * so redeliveries AFTER the outage are still recognized as duplicates.
+     *
+     * Only FINAL markers are replayed. A pending marker belongs to a transaction that
+     * has not committed (or never will, after a crash): copied with the 7 day TTL it
+     * would block every redelivery for a week. Its own complete() writes it to Redis.
+     */
+    private void replayFallbackClaims() {
+        Map<String, String> claims = fallbackStore.claimsInWindow();
+        int replayed = 0;
+
+        for (Map.Entry<String, String> claim : claims.entrySet()) {
+            if (claim.getValue().startsWith(PENDING_PREFIX)) {
+                continue;
+            }
+            try {
+                if (compactStore != null) {
+                    String typeAndId = claim.getKey().substring(IDEMPOTENCY_PREFIX.length());
+                    int separator = typeAndId.indexOf(':');
+                    compactStore.acquire(typeAndId.substring(0, separator), typeAndId.substring(separator + 1),
+                            System.currentTimeMillis(), null);
+                } else {
+                    redisTemplate.opsForValue().setIfAbsent(claim.getKey(), claim.getValue(), IDEMPOTENCY_TTL);
+                }
+                replayed++;
+            } catch (Exception e) {
+                log.warn("Stopped replaying fallback idempotency claims after {}: {}", replayed, e.getMessage());
+                return;
+            }
+        }
+
+        if (replayed > 0) {
+            log.info("Replayed {} idempotency claims from the outage into Redis", replayed);
+        }
+    }
+
+    private Duration claimLease() {
+        return Duration.ofMillis(claimLeaseMs);
+    }
+
+    private void logSkippedDuplicates(String eventType, int batchSize, int acquired) {
+        if (acquired < batchSize) {
+            log.warn("Skipping {} already processed {} events in batch of {}",
+                    batchSize - acquired, eventType, batchSize);
+        }
     }
 
     /**
@@ -200,7 +786,7 @@ public class IdempotencyService {
      * Get processing info for debugging.
      * Returns consumer name and timestamp of when event was processed.
      *
-     * Example output: "RiskAssessmentConsumer:1638360000000"
+     * Example output: "RiskAssessmentConsumer:1638360000000" (compact mode: "compact:1638360000000")
      *
      * @param eventType Type of event
      * @param eventId Unique identifier
@@ -209,6 +795,9 @@ public class IdempotencyService {
     public String getProcessingInfo(String eventType, String eventId) {
         String key = buildKey(eventType, eventId);
         try {
+            if (compactStore != null) {
+                return compactStore.lookup(eventType, eventId);
+            }
             Object value = redisTemplate.opsForValue().get(key);
             return value != null ? value.toString() : null;
         } catch (Exception e) {
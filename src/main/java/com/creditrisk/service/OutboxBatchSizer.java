@@ -0,0 +1,91 @@
+package com.creditrisk.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * ADAPTIVE OUTBOX BATCH SIZE
+ * ==========================
+ *
+ * A fixed batch size is a trade-off that is wrong most of the time:
+ * - Too small: A large backlog drains slowly (many round trips per event)
+ * - Too large: Each batch holds the bucket lock and the DB transaction for long
+ *
+ * This class adjusts the batch size after every batch, based on how long the
+ * batch took (DB fetch + Kafka acknowledgments):
+ * - Full batch finished well under the target -> DOUBLE the size (backlog, system keeps up)
+ * - Batch took longer than the target         -> shrink by 25%
+ * - Any send failed (buffer full, timeout)    -> HALVE the size (backpressure)
+ *
+ * The size always stays between MIN_BATCH_SIZE and MAX_BATCH_SIZE.
+ *
+ * Thread-safe: the scheduler and wakeup threads share one instance.
+ */
+@Slf4j
+class OutboxBatchSizer {
+
+    static final int MIN_BATCH_SIZE = 50;
+    static final int MAX_BATCH_SIZE = 2000;
+    static final int INITIAL_BATCH_SIZE = 100;
+
+    // Desired duration of one batch (fetch + send + acks)
+    private static final long TARGET_BATCH_NANOS = Duration.ofMillis(500).toNanos();
+
+    private volatile int batchSize = INITIAL_BATCH_SIZE;
+
+    /**
+     * Batch size to use for the next fetch.
+     */
+    int currentBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Adjust the batch size based on the batch that just finished.
+     */
+    synchronized void onBatchCompleted(BatchStats stats) {
+        if (stats.fetched() == 0) {
+            return; // Nothing was published, nothing to learn from
+        }
+
+        int current = batchSize;
+        long elapsed = stats.fetchNanos() + stats.ackNanos();
+        int next;
+
+        if (stats.failed() > 0) {
+            next = current / 2;                 // Backpressure: Kafka can't keep up
+        } else if (elapsed > TARGET_BATCH_NANOS) {
+            next = current - current / 4;       // Too slow: shrink
+        } else if (stats.fetched() >= stats.requested() && elapsed < TARGET_BATCH_NANOS / 2) {
+            next = current * 2;                 // Backlog and plenty of headroom: grow
+        } else {
+            return;
+        }
+
+        next = Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, next));
+        if (next != current) {
+            batchSize = next;
+            log.debug("Outbox batch size {} -> {} (fetched={}, failed={}, fetch={}ms, acks={}ms)",
+                    current, next, stats.fetched(), stats.failed(),
+                    stats.fetchNanos() / 1_000_000, stats.ackNanos() / 1_000_000);
+        }
+    }
+
+    /**
+     * Outcome of one outbox batch.
+     *
+     * @param requested Batch size that was requested
+     * @param fetched Events returned by the database
+     * @param acknowledged Events acknowledged by Kafka and marked published
+     * @param failed Events whose send failed or timed out
+     * @param fetchNanos Time spent fetching from the database
+     * @param ackNanos Time spent sending and waiting for acknowledgments
+     * @param lastId Highest outbox id in the batch (keyset cursor for the next fetch)
+     */
+    record BatchStats(int requested, int fetched, int acknowledged, int failed,
+                      long fetchNanos, long ackNanos, long lastId) {
+
+        static final BatchStats EMPTY = new BatchStats(0, 0, 0, 0, 0, 0, 0);
+    }
+}
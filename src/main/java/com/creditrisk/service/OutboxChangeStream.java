@@ -0,0 +1,132 @@
+package com.creditrisk.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * EMBEDDED OUTBOX CHANGE STREAM
+ * =============================
+ *
+ * A CDC tool like Debezium tails the database log and streams every committed
+ * outbox row to Kafka - no poll query at all. This app runs on an embedded H2
+ * database, which has no replication log to tail, so we capture the change one
+ * step earlier: at the COMMIT of the transaction that wrote the row.
+ *
+ * HOW IT WORKS:
+ * -------------
+ * 1. saveToOutbox() raises OutboxEventSaved (row id + bucket) inside the transaction
+ * 2. AFTER the commit, OutboxWakeupNotifier appends it to this stream
+ *    (so the stream is in COMMIT order, rolled-back rows never appear)
+ * 3. The relay thread takes everything queued, groups it by bucket, and lets
+ *    the publisher send exactly those rows (primary-key lookup, no scan)
+ *
+ * The scheduled poll in OutboxEventPublisher is only the SAFETY NET now:
+ * - Rows committed while this node was down / before the stream was drained
+ * - Rows from other instances whose relay died with them
+ * - Retries after a failed send (backoff)
+ *
+ * If the stream is full or disabled, the notifier falls back to the old
+ * bucket wakeup (scan-based), so nothing is ever dropped.
+ *
+ * Configuration (application.yml, outbox.relay.*):
+ * - enabled: Use the change stream (false = wakeup + poll only)
+ * - queue-capacity: Max committed rows waiting for the relay thread
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxChangeStream {
+
+    private static final int MAX_RELAY_BATCH = 500; // Max rows taken from the stream per relay pass
+
+    private final OutboxEventPublisher outboxEventPublisher;
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.relay.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<OutboxEventSaved> committedEvents;
+    private Thread relayThread;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Outbox change stream disabled, relying on wakeups and polling");
+            return;
+        }
+
+        committedEvents = new LinkedBlockingQueue<>(queueCapacity);
+        relayThread = new Thread(this::relayLoop, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+
+    /**
+     * Append a committed outbox row to the stream.
+     * Never blocks the committing thread.
+     *
+     * @return false if the stream is disabled or full (caller must fall back to a wakeup)
+     */
+    public boolean append(OutboxEventSaved event) {
+        return committedEvents != null && committedEvents.offer(event);
+    }
+
+    private void relayLoop() {
+        List<OutboxEventSaved> batch = new ArrayList<>(MAX_RELAY_BATCH);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                // Block until something commits, then take whatever else is already queued
+                batch.add(committedEvents.take());
+                committedEvents.drainTo(batch, MAX_RELAY_BATCH - 1);
+                relay(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // Rows stay unpublished in the database - the poll picks them up
+                log.error("Error relaying {} committed outbox events", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Publish one pass of the stream, bucket by bucket, in commit order.
+     */
+    private void relay(List<OutboxEventSaved> batch) {
+        Map<Integer, List<Long>> idsByBucket = new LinkedHashMap<>();
+        for (OutboxEventSaved event : batch) {
+            idsByBucket.computeIfAbsent(event.partitionBucket(), bucket -> new ArrayList<>()).add(event.outboxId());
+        }
+
+        idsByBucket.forEach((bucket, ids) -> {
+            if (!outboxEventPublisher.publishCommitted(bucket, ids)) {
+                // Bucket leased by a running drain, or the relay failed: a wakeup drain picks the rows up
+                outboxEventPublisher.requestPublish(bucket);
+            }
+        });
+
+        log.trace("Relayed {} committed outbox events across {} buckets", batch.size(), idsByBucket.size());
+    }
+}
@@ -6,17 +6,37 @@ import com.creditrisk.model.OutboxEvent;
 import com.creditrisk.producer.EventProducer;
 import com.creditrisk.repository.OutboxEventRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * OUTBOX EVENT PUBLISHER WITH DISTRIBUTED LOCKING
@@ -26,17 +46,21 @@ import java.util.concurrent.TimeUnit;
  *
  * HOW IT WORKS:
  * -------------
- * 1. Runs every 100ms (configurable via @Scheduled)
- * 2. Attempts to acquire distributed lock (via Redisson)
+ * 1. Handed each outbox row right after it commits (OutboxChangeStream publishes it
+ *    by primary key), with bucket wakeups and a scheduled poll as the fallback
+ * 2. For each outbox bucket, attempts to acquire that bucket's distributed lock (via Redisson)
  * 3. If lock acquired:
- *    a) Queries database for unpublished events
- *    b) For each event:
- *       - Deserialize JSON payload
- *       - Publish to Kafka using EventProducer
- *       - Mark as published in database
- *    c) Releases lock
- * 4. If lock NOT acquired: Skip execution (another instance is publishing)
- * 5. If publishing fails, increment retry count and continue
+ *    a) Queries database for unpublished events in the bucket
+ *    b) Sends the whole batch to Kafka without waiting (pipelined)
+ *    c) Waits for the Kafka acknowledgments
+ *    d) Marks the acknowledged events as published with ONE bulk UPDATE
+ *    e) Releases lock
+ * 4. If lock NOT acquired: Skip the bucket (another instance is publishing it)
+ * 5. If publishing fails, increment retry count, back off exponentially, and continue
+ *
+ * DELIVERY GUARANTEE: at-least-once. An event is marked published only after Kafka
+ * acknowledged it, so a crash in between publishes it again - also in transactional
+ * mode (see sendInKafkaTransaction). Consumers deduplicate (IdempotencyService).
  *
  * DISTRIBUTED LOCKING:
  * --------------------
@@ -46,9 +70,10 @@ import java.util.concurrent.TimeUnit;
  * - All 3 try to publish them
  * - Kafka receives 3 copies of each event (duplicates!)
  *
- * With distributed locking (using Redisson):
- * - Only ONE instance can hold the lock at a time
- * - Other instances skip execution
+ * With partitioned distributed locking (using Redisson):
+ * - The outbox is split into buckets by hash of applicationId
+ * - Only ONE instance can hold a bucket's lock at a time
+ * - Other instances skip that bucket and publish the others in parallel
  * - Lock auto-releases after 30 seconds (prevents deadlock)
  * - Redisson watchdog auto-renews lock if thread is still alive
  *
@@ -57,14 +82,18 @@ import java.util.concurrent.TimeUnit;
  * - Events are NEVER lost (they're in database)
  * - Failed events are automatically retried on next poll
  * - Kafka being down doesn't affect business operations
- * - Events are published in order (FIFO)
+ * - Events of one application are published in order (FIFO within a bucket): while an
+ *   earlier event of the application is backing off or dead-lettered, its later events
+ *   are held back (see withoutBlockedApplications)
  * - Safe to run multiple instances (distributed lock prevents duplicates)
  *
  * PERFORMANCE:
  * ------------
- * - Batch size limit prevents overwhelming Kafka
+ * - Raw payload mode: stored JSON is sent as-is (no Jackson round trip per event)
+ * - Adaptive batch size (OutboxBatchSizer) grows with the backlog, shrinks on slow acks/failures
+ * - Drains back-to-back batches while a backlog exists (not one batch per poll)
  * - Separate thread from business operations
- * - Scales horizontally with distributed locking
+ * - Scales horizontally: up to PARTITION_COUNT instances publish in parallel
  *
  * MONITORING:
  * -----------
@@ -74,10 +103,11 @@ import java.util.concurrent.TimeUnit;
  *
  * PRODUCTION CONSIDERATIONS:
  * --------------------------
- * 1. ✓ Distributed locking implemented (Redisson)
- * 2. Add dead letter queue for events that fail too many times
+ * 1. ✓ Distributed locking implemented (Redisson, one lock per outbox bucket)
+ * 2. ✓ Dead-letter state/topic for events that fail too many times (with exponential backoff)
  * 3. Add metrics/monitoring (Prometheus, Grafana)
- * 4. Consider using CDC (Change Data Capture) like Debezium instead
+ * 4. ✓ Embedded change stream (OutboxChangeStream) - commit-time capture instead of
+ *    polling; Debezium-style log tailing needs a database with a replication log
  */
 @Service
 @RequiredArgsConstructor
@@ -88,28 +118,84 @@ public class OutboxEventPublisher {
     private final EventProducer eventProducer;
     private final ObjectMapper objectMapper;
     private final RedissonClient redissonClient;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Send stored payloads byte-for-byte instead of deserializing and re-serializing them.
+     * Rows without an aggregateId (written before raw mode existed) always use the typed path.
+     */
+    @Value("${outbox.publisher.raw-payload:true}")
+    private boolean rawPayloadEnabled;
+
+    /**
+     * Commit each batch to Kafka atomically with a transactional producer (see KafkaConfig).
+     * Legacy rows without an aggregateId are sent outside the transaction.
+     */
+    @Value("${outbox.publisher.transactional:false}")
+    private boolean kafkaTransactional;
+
+    // Event type -> event record class (for the Kafka type header and typed deserialization)
+    private static final Map<String, Class<?>> EVENT_TYPES = Map.of(
+            "CreditApplicationSubmitted", CreditApplicationSubmitted.class,
+            "RiskAssessmentCompleted", RiskAssessmentCompleted.class
+    );
 
-    private static final int BATCH_SIZE = 100; // Process max 100 events per run
-    private static final int MAX_RETRY_COUNT = 10; // Warn after 10 failed attempts
+    private static final int MAX_RETRY_COUNT = 10; // Dead-letter after 10 failed attempts
+    private static final Duration RETRY_BASE_DELAY = Duration.ofSeconds(1);   // Backoff after 1st failure
+    private static final Duration RETRY_MAX_DELAY = Duration.ofMinutes(10);   // Backoff cap
+    private static final Duration SEND_ACK_TIMEOUT = Duration.ofSeconds(10); // Max wait for Kafka acks per batch
+    private static final Duration MAX_DRAIN_DURATION = Duration.ofSeconds(15); // Must stay below LOCK_LEASE_TIME
+    private static final long HIGH_QUEUE_SIZE = 1000; // Queue size that triggers a warning and an immediate drain
 
     // Distributed lock configuration
-    private static final String LOCK_NAME = "outbox-publisher-lock";
+    private static final String LOCK_NAME_PREFIX = "outbox-publisher-lock:"; // One lock per bucket
     private static final long LOCK_WAIT_TIME = 0;      // Don't wait for lock (fail fast)
+    private static final long WAKEUP_LOCK_WAIT_TIME = 200; // Wakeups wait briefly (ms) for a running drain
     private static final long LOCK_LEASE_TIME = 30;    // Auto-release after 30 seconds
     private static final TimeUnit LOCK_TIME_UNIT = TimeUnit.SECONDS;
 
+    // Adapts the batch size to observed DB fetch time and Kafka ack latency
+    private final OutboxBatchSizer batchSizer = new OutboxBatchSizer();
+
+    // Buckets with a wakeup queued but not yet started (coalesces bursts of commits)
+    private final Set<Integer> pendingWakeups = ConcurrentHashMap.newKeySet();
+
+    // Single thread for wakeup-triggered publishing (keeps it off the committing threads)
+    private final ExecutorService wakeupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-wakeup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Assign outbox rows written before partitioning existed to a bucket.
+     * Without this, rows with a NULL partition_bucket would never be published.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void assignUnpartitionedEvents() {
+        int updated = outboxEventRepository.assignUnpartitionedEventsToDefaultBucket();
+        if (updated > 0) {
+            log.info("Assigned {} unpartitioned outbox events to bucket 0", updated);
+        }
+    }
+
     /**
      * Scheduled task that publishes outbox events to Kafka.
      *
-     * DISTRIBUTED LOCKING:
-     * ====================
-     * Uses Redisson distributed lock to ensure only ONE instance
-     * publishes events at a time across multiple application instances.
+     * PARTITIONED DISTRIBUTED LOCKING:
+     * ================================
+     * The outbox is split into OutboxEvent.PARTITION_COUNT buckets (hash of applicationId).
+     * Each bucket has its own Redisson lock, so different instances drain different
+     * buckets IN PARALLEL instead of one node doing all the work.
+     *
+     * Behavior (per bucket):
+     * - Try to acquire the bucket lock (non-blocking, 0ms wait)
+     * - If acquired: Publish the bucket's events, commit, then release the lock
+     * - If not acquired: Skip the bucket (another instance is publishing it)
      *
-     * Behavior:
-     * - Try to acquire lock (non-blocking, 0ms wait)
-     * - If acquired: Publish events and release lock
-     * - If not acquired: Skip this execution (another instance is publishing)
+     * Each run starts at a random bucket so instances don't all race for bucket 0.
+     * All events of one application share a bucket, so per-application order is preserved.
      *
      * LOCK AUTO-RELEASE:
      * ==================
@@ -121,140 +207,564 @@ public class OutboxEventPublisher {
      *
      * This prevents deadlock from crashed instances.
      *
-     * Runs every 5 seconds.
-     * Adjust based on your throughput requirements:
-     * - Higher frequency = lower latency, more database load
-     * - Lower frequency = higher latency, less database load
+     * Runs every 30 seconds (outbox.publisher.poll-interval-ms).
+     * This is only the FALLBACK: new events are normally published right after
+     * their transaction commits (see publishCommitted and requestPublish). The interval
+     * bounds how long an event can wait if the change stream misses it, at the cost
+     * of idle database load.
      */
-    @Scheduled(fixedDelay = 5000) // Run every 5 seconds
-    @Transactional
+    @Scheduled(fixedDelayString = "${outbox.publisher.poll-interval-ms:30000}")
     public void publishEvents() {
-        // Get distributed lock
-        RLock lock = redissonClient.getLock(LOCK_NAME);
+        int startBucket = ThreadLocalRandom.current().nextInt(OutboxEvent.PARTITION_COUNT);
+
+        for (int i = 0; i < OutboxEvent.PARTITION_COUNT; i++) {
+            publishBucket((startBucket + i) % OutboxEvent.PARTITION_COUNT, LOCK_WAIT_TIME, LOCK_TIME_UNIT);
+        }
+    }
+
+    /**
+     * Request that one bucket is published as soon as possible.
+     *
+     * Called after an outbox row commits (locally or on another node).
+     * Returns immediately - publishing happens on the wakeup thread.
+     * Multiple requests for the same bucket before it runs are coalesced into one.
+     *
+     * @param bucket Outbox bucket that has new events
+     */
+    public void requestPublish(int bucket) {
+        if (bucket < 0 || bucket >= OutboxEvent.PARTITION_COUNT) {
+            log.warn("Ignoring wakeup for unknown outbox bucket {}", bucket);
+            return;
+        }
+
+        if (pendingWakeups.add(bucket)) {
+            wakeupExecutor.execute(() -> {
+                // Clear the flag BEFORE publishing, so commits during the run queue another pass
+                pendingWakeups.remove(bucket);
+                publishBucket(bucket, WAKEUP_LOCK_WAIT_TIME, TimeUnit.MILLISECONDS);
+            });
+        }
+    }
+
+    /**
+     * Publish specific, just-committed outbox rows (change stream path).
+     *
+     * The rows are loaded by primary key - no scan of the outbox table.
+     * Rows already published by a concurrent poll, dead-lettered or backing off
+     * are skipped. Publishing happens under the bucket lock, like every other path.
+     *
+     * @param bucket Outbox bucket of the rows
+     * @param ids Outbox row IDs in commit order
+     * @return false if the rows were not relayed - bucket lock busy or the relay failed
+     *         (caller should fall back to a wakeup)
+     */
+    public boolean publishCommitted(int bucket, List<Long> ids) {
+        return withBucketLock(bucket, WAKEUP_LOCK_WAIT_TIME, TimeUnit.MILLISECONDS, () -> {
+            List<OutboxEvent> deadLetters = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> publishCommittedInternal(bucket, ids, deadLetters));
+            moveToDeadLetter(deadLetters); // After the commit, outside any transaction
+        });
+    }
+
+    @PreDestroy
+    public void shutdownWakeupExecutor() {
+        wakeupExecutor.shutdownNow();
+    }
+
+    /**
+     * Publish the events of one bucket while holding that bucket's lock.
+     *
+     * Wakeups wait briefly for the lock: if a poll is draining the bucket right now,
+     * it may have queried before the new row committed.
+     */
+    private void publishBucket(int bucket, long lockWaitTime, TimeUnit lockWaitUnit) {
+        withBucketLock(bucket, lockWaitTime, lockWaitUnit, () -> drainBucket(bucket));
+    }
+
+    /**
+     * Run the given work while holding the bucket's distributed lock.
+     *
+     * The work's transactions commit BEFORE the lock is released, so the next holder
+     * never sees rows this instance has already published.
+     *
+     * @return true only if the work ran to completion; false if the lock could not be
+     *         acquired or the work failed
+     */
+    private boolean withBucketLock(int bucket, long lockWaitTime, TimeUnit lockWaitUnit, Runnable work) {
+        // Get distributed lock for this bucket
+        RLock lock = redissonClient.getLock(LOCK_NAME_PREFIX + bucket);
 
         try {
-            // Try to acquire lock (non-blocking)
-            boolean acquired = lock.tryLock(LOCK_WAIT_TIME, LOCK_LEASE_TIME, LOCK_TIME_UNIT);
+            // Try to acquire lock (non-blocking, or a short wait for wakeups)
+            long leaseTime = lockWaitUnit.convert(LOCK_LEASE_TIME, LOCK_TIME_UNIT);
+            boolean acquired = lock.tryLock(lockWaitTime, leaseTime, lockWaitUnit);
 
             if (!acquired) {
-                // Another instance is already publishing events
-                log.trace("Could not acquire lock, skipping execution (another instance is publishing)");
-                return;
+                // Another instance is already publishing this bucket
+                log.trace("Could not acquire lock for bucket {}, skipping (another instance is publishing)", bucket);
+                return false;
             }
 
-            log.trace("Acquired distributed lock, publishing outbox events");
+            log.trace("Acquired distributed lock for bucket {}, publishing outbox events", bucket);
 
             try {
-                // Publish events (existing logic)
-                publishEventsInternal();
+                work.run();
+                return true;
 
             } finally {
                 // Always release lock (even if exception occurred)
                 // Check if current thread still holds lock before releasing
                 if (lock.isHeldByCurrentThread()) {
                     lock.unlock();
-                    log.trace("Released distributed lock");
+                    log.trace("Released distributed lock for bucket {}", bucket);
                 }
             }
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            log.error("Interrupted while trying to acquire lock", e);
+            log.error("Interrupted while trying to acquire lock for bucket {}", bucket, e);
         } catch (Exception e) {
-            log.error("Error in outbox event publisher", e);
+            log.error("Error in outbox event publisher (bucket {})", bucket, e);
             // Lock will auto-release due to lease time
         }
+        return false;
+    }
+
+    /**
+     * Publish batches back-to-back while the bucket has a backlog.
+     *
+     * DRAIN-UNTIL-EMPTY:
+     * ==================
+     * Instead of one batch per poll (which caps throughput at batch size / poll interval),
+     * keep publishing while the last batch came back FULL. Stop when:
+     * - The bucket is drained (partial batch)
+     * - A send failed (backpressure - let Kafka recover, retry on next poll/wakeup)
+     * - MAX_DRAIN_DURATION has passed (stay well inside the lock lease)
+     *
+     * Each batch commits in its own transaction, so progress is never lost.
+     * When the deadline stops a drain that still has a backlog, a wakeup is queued
+     * so the rest is published right after the lock is released, not on the next poll.
+     */
+    private void drainBucket(int bucket) {
+        long deadline = System.nanoTime() + MAX_DRAIN_DURATION.toNanos();
+        long cursor = 0; // Keyset cursor: last outbox id seen in this drain
+        int batches = 0;
+        int published = 0;
+
+        while (true) {
+            int batchSize = batchSizer.currentBatchSize();
+            long afterId = cursor;
+            List<OutboxEvent> deadLetters = new ArrayList<>();
+            OutboxBatchSizer.BatchStats stats = transactionTemplate.execute(
+                    status -> publishEventsInternal(bucket, afterId, batchSize, deadLetters));
+            moveToDeadLetter(deadLetters); // After the commit, outside any transaction
+            if (stats == null) {
+                break;
+            }
+
+            batchSizer.onBatchCompleted(stats);
+            batches++;
+            published += stats.acknowledged();
+            cursor = stats.lastId();
+
+            boolean backlog = stats.fetched() >= batchSize;
+            if (!backlog || stats.failed() > 0) {
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                // Out of time, not out of rows: continue in a fresh drain (and lock lease)
+                requestPublish(bucket);
+                break;
+            }
+        }
+
+        if (batches > 1) {
+            log.info("Drained {} events from bucket {} in {} batches", published, bucket, batches);
+        }
     }
 
     /**
      * Internal method that does the actual event publishing.
      * Extracted to separate locking logic from business logic.
+     *
+     * PIPELINED BATCH SEND:
+     * =====================
+     * 1. Fire ALL sends in the batch without waiting (Kafka batches them on the wire)
+     * 2. Wait for the acknowledgments (bounded by SEND_ACK_TIMEOUT)
+     * 3. Mark only the acknowledged events as published with ONE bulk UPDATE
+     *
+     * Events are never marked published before Kafka has acked them.
+     * Failed or timed-out sends stay unpublished and are retried on the next poll.
      */
-    private void publishEventsInternal() {
+    private OutboxBatchSizer.BatchStats publishEventsInternal(int bucket, long afterId, int batchSize,
+                                                              List<OutboxEvent> deadLetters) {
         try {
-            // Fetch unpublished events (limited to prevent overwhelming Kafka)
-            List<OutboxEvent> events = outboxEventRepository.findUnpublishedEventsWithLimit(BATCH_SIZE);
+            // Fetch the next page of unpublished events of this bucket (keyset: id > afterId)
+            long fetchStart = System.nanoTime();
+            List<OutboxEvent> events = outboxEventRepository
+                    .findUnpublishedEventsInBucketAfter(bucket, afterId, Instant.now(), batchSize);
+            long sendStart = System.nanoTime();
 
             if (events.isEmpty()) {
-                return; // No events to publish
+                return OutboxBatchSizer.BatchStats.EMPTY; // No events to publish
+            }
+
+            List<OutboxEvent> sendable = withoutBlockedApplications(events);
+            SendOutcome outcome = sendable.isEmpty()
+                    ? new SendOutcome(List.of(), 0)
+                    : sendAndMarkPublished(bucket, sendable, deadLetters);
+            List<Long> acknowledgedIds = outcome.acknowledgedIds();
+            long sendEnd = System.nanoTime();
+
+            // Only count Kafka send/ack failures: a malformed event is not backpressure
+            return new OutboxBatchSizer.BatchStats(batchSize, events.size(), acknowledgedIds.size(),
+                    outcome.attempted() - acknowledgedIds.size(), sendStart - fetchStart, sendEnd - sendStart,
+                    events.get(events.size() - 1).getId());
+
+        } catch (Exception e) {
+            log.error("Error publishing events", e);
+            return OutboxBatchSizer.BatchStats.EMPTY;
+        }
+    }
+
+    /**
+     * Change stream path: load the committed rows by primary key and publish the ones still pending.
+     * Runs inside a transaction, under the bucket lock.
+     *
+     * @param deadLetters Collects the events to dead-letter once the transaction has committed
+     */
+    private void publishCommittedInternal(int bucket, List<Long> ids, List<OutboxEvent> deadLetters) {
+        Instant now = Instant.now();
+        List<OutboxEvent> events = withoutBlockedApplications(outboxEventRepository.findAllById(ids).stream()
+                .filter(event -> !Boolean.TRUE.equals(event.getPublished()) && event.getDeadLetteredAt() == null)
+                .filter(event -> event.getNextAttemptAt() == null || !event.getNextAttemptAt().isAfter(now))
+                .sorted(Comparator.comparing(OutboxEvent::getId))
+                .toList());
+
+        if (events.isEmpty()) {
+            return; // Already published by a poll/drain, or waiting for a retry
+        }
+
+        SendOutcome outcome = sendAndMarkPublished(bucket, events, deadLetters);
+        log.debug("Relayed {} of {} committed outbox events in bucket {}",
+                outcome.acknowledgedIds().size(), ids.size(), bucket);
+    }
+
+    /**
+     * Drop the events that would overtake a blocked event of the same application.
+     *
+     * PER-APPLICATION ORDER:
+     * ======================
+     * A failed event backs off (handlePublishError) and the poll skips it - but the
+     * application's LATER events are not in backoff and would be published first.
+     * So before sending, look up the applications of the batch that have a blocked
+     * event (backing off or dead-lettered) and hold back every event after it.
+     * They stay pending and go out once the blocked one is published (or requeued,
+     * if it was dead-lettered). Other applications are not affected.
+     *
+     * Rows without an aggregateId (written before that column existed) have no
+     * application to order by and are never held back.
+     *
+     * @param events Events about to be sent, ordered by id
+     * @return The events that may be sent now, same order
+     */
+    private List<OutboxEvent> withoutBlockedApplications(List<OutboxEvent> events) {
+        Set<String> aggregateIds = new HashSet<>();
+        for (OutboxEvent event : events) {
+            if (event.getAggregateId() != null) {
+                aggregateIds.add(event.getAggregateId());
+            }
+        }
+        if (aggregateIds.isEmpty()) {
+            return events;
+        }
+
+        Map<String, Long> firstBlockedIds = new HashMap<>();
+        for (OutboxEventRepository.BlockedAggregate blocked
+                : outboxEventRepository.findBlockedAggregates(aggregateIds, Instant.now())) {
+            firstBlockedIds.put(blocked.getAggregateId(), blocked.getFirstBlockedId());
+        }
+        if (firstBlockedIds.isEmpty()) {
+            return events; // The common case: nothing is backing off
+        }
+
+        List<OutboxEvent> sendable = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            Long firstBlockedId = event.getAggregateId() != null ? firstBlockedIds.get(event.getAggregateId()) : null;
+            if (firstBlockedId == null || event.getId() < firstBlockedId) {
+                sendable.add(event);
             }
+        }
+        log.debug("Held back {} outbox events behind a blocked event of the same application",
+                events.size() - sendable.size());
+        return sendable;
+    }
+
+    /**
+     * Send the events to Kafka and mark the acknowledged ones as published.
+     *
+     * 1. Send everything, then wait for the Kafka acknowledgments
+     * 2. Single bulk UPDATE for the acknowledged events
+     *
+     * Events that used up their retries are only collected in deadLetters: the caller
+     * moves them once this database transaction has committed (see moveToDeadLetter).
+     */
+    private SendOutcome sendAndMarkPublished(int bucket, List<OutboxEvent> events, List<OutboxEvent> deadLetters) {
+        log.debug("Publishing {} outbox events from bucket {}", events.size(), bucket);
+
+        // Phase 1 + 2: send everything, then wait for the Kafka acknowledgments
+        SendOutcome outcome = kafkaTransactional
+                ? sendInKafkaTransaction(events, deadLetters)
+                : sendBatch(events, deadLetters);
 
-            log.debug("Publishing {} outbox events", events.size());
+        // Phase 3: single bulk UPDATE for the acknowledged events
+        if (!outcome.acknowledgedIds().isEmpty()) {
+            int updated = outboxEventRepository.markAsPublished(outcome.acknowledgedIds(), Instant.now());
+            log.info("Published {} of {} outbox events from bucket {}", updated, events.size(), bucket);
+        }
+
+        return outcome;
+    }
 
-            for (OutboxEvent event : events) {
-                try {
-                    publishEvent(event);
-                } catch (Exception e) {
-                    handlePublishError(event, e);
+    /**
+     * Send a batch (pipelined) and wait for the acknowledgments.
+     *
+     * If an event can't even be handed to the producer, the later events of the same
+     * application in this batch are not sent either (they stay pending, and the next
+     * batch holds them back behind the failed one). A send that fails only at the
+     * acknowledgment stage can't be recalled: later events of that application that
+     * were already in flight may have been written, so in non-transactional mode they
+     * can overtake it. Transactional mode aborts the whole batch instead.
+     *
+     * @param deadLetters Collects the events that used up their retries (see handlePublishError)
+     */
+    private SendOutcome sendBatch(List<OutboxEvent> events, List<OutboxEvent> deadLetters) {
+        // Phase 1: send everything, collect the futures
+        List<PendingSend> pendingSends = new ArrayList<>(events.size());
+        Set<String> failedAggregateIds = new HashSet<>();
+        for (OutboxEvent event : events) {
+            if (event.getAggregateId() != null && failedAggregateIds.contains(event.getAggregateId())) {
+                continue; // Must not overtake the failed event of its application
+            }
+            try {
+                pendingSends.add(new PendingSend(event, publishEvent(event)));
+            } catch (Exception e) {
+                handlePublishError(event, e, deadLetters);
+                if (event.getAggregateId() != null) {
+                    failedAggregateIds.add(event.getAggregateId());
                 }
             }
+        }
 
-            log.debug("Finished publishing batch of {} events", events.size());
+        // Phase 2: wait for Kafka acknowledgments
+        return new SendOutcome(awaitAcknowledgements(pendingSends, deadLetters), pendingSends.size());
+    }
 
+    /**
+     * Send a batch inside ONE Kafka transaction (transactional mode).
+     *
+     * ALL-OR-NOTHING BATCHES, STILL AT-LEAST-ONCE:
+     * ============================================
+     * Either every sent event of the batch becomes visible to read_committed
+     * consumers, or none does: if any send fails, the whole Kafka transaction is
+     * aborted and no event of the batch is marked published (only the failed ones
+     * count a retry). No half-published batches, and producer idempotence removes
+     * duplicates from the producer's own internal retries.
+     *
+     * This is NOT exactly-once end to end. The Kafka transaction commits when this
+     * method returns, BEFORE the database UPDATE in sendAndMarkPublished. If the
+     * publisher crashes (or the database commit fails) in between, the batch is
+     * already committed in Kafka but still pending in the outbox, and the next
+     * run publishes it again. Consumers must stay idempotent (IdempotencyService).
+     */
+    private SendOutcome sendInKafkaTransaction(List<OutboxEvent> events, List<OutboxEvent> deadLetters) {
+        try {
+            return eventProducer.executeInTransaction(rawPayloadEnabled, () -> {
+                SendOutcome outcome = sendBatch(events, deadLetters);
+                if (outcome.acknowledgedIds().size() < outcome.attempted()) {
+                    throw new IllegalStateException((outcome.attempted() - outcome.acknowledgedIds().size())
+                            + " sends failed, aborting Kafka transaction");
+                }
+                return outcome;
+            });
         } catch (Exception e) {
-            log.error("Error publishing events", e);
+            log.warn("Kafka transaction for {} outbox events aborted: {}", events.size(), e.getMessage());
+            return new SendOutcome(List.of(), events.size());
+        }
+    }
+
+    /**
+     * Wait for every pending send to be acknowledged by Kafka.
+     * All sends share one deadline, so a slow broker can't stall the batch for N * timeout.
+     *
+     * @return IDs of the outbox rows Kafka acknowledged
+     */
+    private List<Long> awaitAcknowledgements(List<PendingSend> pendingSends, List<OutboxEvent> deadLetters) {
+        List<Long> acknowledgedIds = new ArrayList<>(pendingSends.size());
+        long deadline = System.nanoTime() + SEND_ACK_TIMEOUT.toNanos();
+
+        for (PendingSend pendingSend : pendingSends) {
+            OutboxEvent event = pendingSend.event();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                pendingSend.ack().get(remaining, TimeUnit.NANOSECONDS);
+                acknowledgedIds.add(event.getId());
+                log.debug("Kafka acknowledged event: {} (type: {})", event.getEventId(), event.getEventType());
+            } catch (ExecutionException e) {
+                handlePublishError(event, e.getCause() != null ? e.getCause() : e, deadLetters);
+            } catch (TimeoutException e) {
+                handlePublishError(event, new TimeoutException(
+                        "No Kafka acknowledgment within " + SEND_ACK_TIMEOUT.toSeconds() + "s"), deadLetters);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                handlePublishError(event, e, deadLetters);
+            }
         }
+
+        return acknowledgedIds;
     }
 
     /**
-     * Publish a single event to Kafka.
+     * Send a single event to Kafka without waiting for the acknowledgment.
+     *
+     * @return Future that completes when Kafka acknowledges the event
      */
-    private void publishEvent(OutboxEvent outboxEvent) throws Exception {
+    private CompletableFuture<?> publishEvent(OutboxEvent outboxEvent) throws Exception {
         log.debug("Publishing event: {} (type: {})", outboxEvent.getEventId(), outboxEvent.getEventType());
 
+        // Fast path: send the stored JSON as-is, type header derived from eventType
+        if (rawPayloadEnabled && outboxEvent.getAggregateId() != null) {
+            return eventProducer.publishRawPayload(outboxEvent.getTopic(), outboxEvent.getAggregateId(),
+                    eventClass(outboxEvent), outboxEvent.getPayload());
+        }
+
         // Deserialize payload based on event type
         Object event = deserializeEvent(outboxEvent);
 
-        // Publish to Kafka
-        switch (outboxEvent.getEventType()) {
+        // Publish to Kafka (asynchronous - acknowledgment is awaited by the caller)
+        return switch (outboxEvent.getEventType()) {
             case "CreditApplicationSubmitted" ->
                 eventProducer.publishCreditApplication((CreditApplicationSubmitted) event);
             case "RiskAssessmentCompleted" ->
                 eventProducer.publishRiskAssessment((RiskAssessmentCompleted) event);
             default ->
                 throw new IllegalArgumentException("Unknown event type: " + outboxEvent.getEventType());
-        }
-
-        // Mark as published
-        outboxEvent.setPublished(true);
-        outboxEvent.setPublishedAt(Instant.now());
-        outboxEventRepository.save(outboxEvent);
-
-        log.info("Successfully published event: {} (type: {})",
-                 outboxEvent.getEventId(), outboxEvent.getEventType());
+        };
     }
 
     /**
      * Deserialize JSON payload to event object.
      */
     private Object deserializeEvent(OutboxEvent outboxEvent) throws Exception {
-        return switch (outboxEvent.getEventType()) {
-            case "CreditApplicationSubmitted" ->
-                objectMapper.readValue(outboxEvent.getPayload(), CreditApplicationSubmitted.class);
-            case "RiskAssessmentCompleted" ->
-                objectMapper.readValue(outboxEvent.getPayload(), RiskAssessmentCompleted.class);
-            default ->
-                throw new IllegalArgumentException("Unknown event type: " + outboxEvent.getEventType());
-        };
+        return objectMapper.readValue(outboxEvent.getPayload(), eventClass(outboxEvent));
+    }
+
+    /**
+     * Resolve the event record class for an outbox row.
+     */
+    private Class<?> eventClass(OutboxEvent outboxEvent) {
+        Class<?> eventClass = EVENT_TYPES.get(outboxEvent.getEventType());
+        if (eventClass == null) {
+            throw new IllegalArgumentException("Unknown event type: " + outboxEvent.getEventType());
+        }
+        return eventClass;
     }
 
     /**
      * Handle publishing errors.
+     *
+     * BACKOFF + DEAD-LETTER:
+     * ======================
+     * A failed event is NOT retried on the very next poll. It gets a next_attempt_at
+     * with exponential backoff (1s, 2s, 4s, ... capped at 10 min) plus jitter, and the
+     * publisher skips it until then. Healthy events keep flowing at full speed.
+     *
+     * After MAX_RETRY_COUNT failures the event goes to deadLetters. Once the batch's
+     * database transaction has committed, moveToDeadLetter() sends a copy to the
+     * dead-letter topic and parks the row.
      */
-    private void handlePublishError(OutboxEvent event, Exception e) {
+    private void handlePublishError(OutboxEvent event, Throwable e, List<OutboxEvent> deadLetters) {
         event.setRetryCount(event.getRetryCount() + 1);
         event.setLastError(e.getMessage());
-        outboxEventRepository.save(event);
 
         if (event.getRetryCount() >= MAX_RETRY_COUNT) {
-            log.error("Event {} has failed {} times. Manual intervention may be required. Error: {}",
+            log.error("Event {} has failed {} times, moving it to dead-letter. Error: {}",
                       event.getEventId(), event.getRetryCount(), e.getMessage());
+            deadLetters.add(event);
         } else {
-            log.warn("Failed to publish event {} (attempt {}): {}",
-                     event.getEventId(), event.getRetryCount(), e.getMessage());
+            Duration backoff = retryBackoff(event.getRetryCount());
+            event.setNextAttemptAt(Instant.now().plus(backoff));
+            outboxEventRepository.save(event);
+
+            log.warn("Failed to publish event {} (attempt {}), next attempt in {}ms: {}",
+                     event.getEventId(), event.getRetryCount(), backoff.toMillis(), e.getMessage());
         }
     }
 
+    /**
+     * Exponential backoff with "equal jitter": half the delay is fixed, half is random.
+     * Jitter spreads retries out so failed events don't all come back at the same moment.
+     */
+    private Duration retryBackoff(int retryCount) {
+        long exponential = RETRY_BASE_DELAY.toMillis() << Math.min(retryCount - 1, 20);
+        long delay = Math.min(exponential, RETRY_MAX_DELAY.toMillis());
+        long half = delay / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    /**
+     * Copy the events to the dead-letter topic, then park them (dead_lettered_at).
+     *
+     * RUNS OUTSIDE EVERY TRANSACTION:
+     * ===============================
+     * Called after the batch's database transaction has committed - never inside it.
+     * In transactional mode, a KafkaTemplate send inside an active database transaction
+     * would join a Kafka transaction synchronized with it: a database rollback would
+     * abort the dead-letter copy, or the copy could commit while the row update rolls
+     * back. Here the copy goes through the non-transactional producer, and each row
+     * update is its own short transaction (repository save).
+     *
+     * The row is only parked once Kafka acknowledged the copy; if the dead-letter send
+     * fails, the row stays pending with a backoff and goes through the normal
+     * retry -> dead-letter path again. A crash between the two steps can produce a
+     * second dead-letter copy, never a parked row without one. If the batch transaction
+     * rolls back instead, the caller never gets here and the events are retried.
+     */
+    private void moveToDeadLetter(List<OutboxEvent> deadLetters) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Dead letters must be moved after the transaction, not inside it");
+        }
+        deadLetters.forEach(this::moveToDeadLetter);
+    }
+
+    /**
+     * Dead-letter one event (see moveToDeadLetter(List)).
+     */
+    private void moveToDeadLetter(OutboxEvent event) {
+        String key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+        try {
+            eventProducer.publishDeadLetter(key, event.getEventType(), event.getPayload(), event.getLastError())
+                    .get(SEND_ACK_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Duration backoff = retryBackoff(event.getRetryCount());
+            event.setNextAttemptAt(Instant.now().plus(backoff));
+            outboxEventRepository.save(event);
+
+            log.error("Failed to send event {} to dead-letter topic, next attempt in {}ms",
+                      event.getEventId(), backoff.toMillis(), e);
+            return;
+        }
+
+        event.setDeadLetteredAt(Instant.now());
+        event.setNextAttemptAt(null);
+        outboxEventRepository.save(event);
+        log.error("Event {} moved to dead-letter after {} attempts. Manual intervention required.",
+                  event.getEventId(), event.getRetryCount());
+    }
+
     /**
      * Monitor for stuck events (events that haven't been published for too long).
      * Run this less frequently (e.g., every minute).
@@ -263,23 +773,35 @@ public class OutboxEventPublisher {
     public void monitorStuckEvents() {
         try {
             Instant threshold = Instant.now().minusSeconds(300); // 5 minutes ago
-            List<OutboxEvent> stuckEvents = outboxEventRepository
-                    .findByPublishedFalseAndCreatedAtBefore(threshold);
 
-            if (!stuckEvents.isEmpty()) {
+            // Count first, then load only a sample (a large backlog must not be loaded into memory)
+            long stuckCount = outboxEventRepository
+                    .countByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBefore(threshold);
+
+            if (stuckCount > 0) {
                 log.error("Found {} stuck events older than 5 minutes. Manual intervention may be required.",
-                          stuckEvents.size());
-                stuckEvents.forEach(event ->
+                          stuckCount);
+                List<OutboxEvent> sample = outboxEventRepository
+                        .findTop20ByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBeforeOrderByIdAsc(threshold);
+                sample.forEach(event ->
                     log.error("Stuck event: id={}, eventId={}, eventType={}, createdAt={}, retryCount={}, lastError={}",
                               event.getId(), event.getEventId(), event.getEventType(),
                               event.getCreatedAt(), event.getRetryCount(), event.getLastError())
                 );
             }
 
+            long deadLetterCount = outboxEventRepository.countByPublishedFalseAndDeadLetteredAtIsNotNull();
+            if (deadLetterCount > 0) {
+                log.error("{} outbox events are parked in the dead-letter state", deadLetterCount);
+            }
+
             // Log queue size for monitoring
             long queueSize = outboxEventRepository.countByPublishedFalse();
-            if (queueSize > 1000) {
-                log.warn("Outbox queue size is {}, which is high. Consider scaling up.", queueSize);
+            if (queueSize > HIGH_QUEUE_SIZE) {
+                log.warn("Outbox queue size is {}, which is high. Draining all buckets now.", queueSize);
+                for (int bucket = 0; bucket < OutboxEvent.PARTITION_COUNT; bucket++) {
+                    requestPublish(bucket);
+                }
             } else {
                 log.debug("Outbox queue size: {}", queueSize);
             }
@@ -288,4 +810,19 @@ public class OutboxEventPublisher {
             log.error("Error monitoring stuck events", e);
         }
     }
+
+    /**
+     * An event that has been handed to the Kafka producer but not yet acknowledged.
+     */
+    private record PendingSend(OutboxEvent event, CompletableFuture<?> ack) {
+    }
+
+    /**
+     * Result of sending one batch.
+     *
+     * @param acknowledgedIds Outbox IDs Kafka acknowledged (and, in transactional mode, committed)
+     * @param attempted Number of events handed to the producer
+     */
+    private record SendOutcome(List<Long> acknowledgedIds, int attempted) {
+    }
 }
@@ -0,0 +1,14 @@
+package com.creditrisk.service;
+
+/**
+ * In-process (Spring) event raised when a row is written to the outbox table.
+ *
+ * This is NOT a Kafka event. It is published inside the writing transaction and
+ * delivered to OutboxWakeupNotifier only AFTER that transaction commits, so the
+ * row is handed to the change stream exactly when it becomes visible.
+ *
+ * @param outboxId Primary key of the outbox row
+ * @param partitionBucket Outbox bucket the row was written to
+ */
+public record OutboxEventSaved(long outboxId, int partitionBucket) {
+}
@@ -0,0 +1,222 @@
+package com.creditrisk.service;
+
+import com.creditrisk.model.OutboxEvent;
+import com.creditrisk.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OUTBOX RETENTION (COMPACTION + ARCHIVAL)
+ * ========================================
+ *
+ * The publisher only flips rows to published = true - it never deletes them.
+ * Without cleanup the outbox table grows forever, and every index on it
+ * (including the one the publisher scans) gets slower month after month.
+ *
+ * This job deletes published events older than the retention horizon:
+ * - In CHUNKS, each in its own short transaction (no long locks, no huge undo logs)
+ * - Optionally writes each chunk to a gzipped JSON-lines archive and fsyncs it
+ *   BEFORE deleting it (the file is only created once there is something to archive)
+ * - Only on ONE instance at a time (Redisson lock)
+ *
+ * Unpublished events are NEVER touched, no matter how old.
+ *
+ * Configuration (application.yml, outbox.retention.*):
+ * - enabled: Turn the job on/off
+ * - horizon-days: Keep published events for this many days
+ * - chunk-size: Rows deleted per transaction
+ * - interval-ms: How often the job runs
+ * - archive-dir: Directory for archive files (empty = delete without archiving)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRetentionService {
+
+    private static final String LOCK_NAME = "outbox-retention-lock";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${outbox.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.retention.horizon-days:7}")
+    private int horizonDays;
+
+    @Value("${outbox.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${outbox.retention.archive-dir:}")
+    private String archiveDir;
+
+    /**
+     * Scheduled retention run.
+     * Skips the run if another instance is already purging.
+     */
+    @Scheduled(initialDelay = 60000, fixedDelayString = "${outbox.retention.interval-ms:3600000}")
+    public void purgePublishedEvents() {
+        if (!enabled) {
+            return;
+        }
+
+        RLock lock = redissonClient.getLock(LOCK_NAME);
+        if (!lock.tryLock()) {
+            log.trace("Retention job already running on another instance, skipping");
+            return;
+        }
+
+        try {
+            Instant horizon = Instant.now().minus(Duration.ofDays(horizonDays));
+            long started = System.currentTimeMillis();
+            long purged = purgePublishedBefore(horizon);
+
+            if (purged > 0) {
+                log.info("Outbox retention removed {} published events older than {} in {}ms",
+                        purged, horizon, System.currentTimeMillis() - started);
+            }
+
+        } catch (Exception e) {
+            log.error("Error in outbox retention job", e);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Delete (and optionally archive) all events published before the given time.
+     *
+     * @param horizon Events published before this time are removed
+     * @return Number of events removed
+     */
+    public long purgePublishedBefore(Instant horizon) throws IOException {
+        if (archiveDir == null || archiveDir.isBlank()) {
+            return purgeChunks(horizon, null);
+        }
+
+        Path archiveFile = Path.of(archiveDir, "outbox-archive-" + Instant.now().toEpochMilli() + ".jsonl.gz");
+        try (ChunkArchive archive = new ChunkArchive(archiveFile)) {
+            long purged = purgeChunks(horizon, archive);
+            if (purged > 0) {
+                log.info("Archived {} outbox events to {}", purged, archiveFile);
+            }
+            return purged;
+        }
+    }
+
+    /**
+     * Delete chunk after chunk until no old published events are left.
+     */
+    private long purgeChunks(Instant horizon, ChunkArchive archive) throws IOException {
+        long purged = 0;
+
+        while (true) {
+            List<Long> ids = outboxEventRepository.findPublishedIdsBefore(horizon, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                return purged;
+            }
+
+            if (archive != null) {
+                archiveChunk(ids, archive);
+                archive.sync(); // On disk before the rows are gone
+            }
+
+            // One short transaction per chunk: DELETE ... WHERE id IN (...)
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteAllByIdInBatch(ids));
+            purged += ids.size();
+            log.debug("Purged {} outbox events (total {})", ids.size(), purged);
+
+            if (ids.size() < chunkSize) {
+                return purged;
+            }
+        }
+    }
+
+    /**
+     * Write one chunk of events to the archive as JSON lines.
+     */
+    private void archiveChunk(List<Long> ids, ChunkArchive archive) throws IOException {
+        for (OutboxEvent event : outboxEventRepository.findAllById(ids)) {
+            archive.append(objectMapper.writeValueAsString(event));
+        }
+    }
+
+    /**
+     * Gzipped JSON-lines archive file of one retention run.
+     *
+     * - Created on the first archived event, so runs with nothing to purge leave no empty files
+     * - sync() = flush + fsync: GZIP sync flush pushes the compressed chunk to the file,
+     *   FileChannel.force() makes the OS write it to disk. Only then are rows deleted.
+     * - If the process dies mid-run the gzip trailer is missing, but every synced chunk
+     *   can still be read (zcat reports "unexpected end of file" after the last one)
+     */
+    private static final class ChunkArchive implements Closeable {
+
+        private final Path file;
+        private FileOutputStream out;
+        private GZIPOutputStream gzip;
+        private Writer writer;
+
+        ChunkArchive(Path file) {
+            this.file = file;
+        }
+
+        void append(String line) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(file.getParent());
+                out = new FileOutputStream(file.toFile());
+                gzip = new GZIPOutputStream(out, true);
+                writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            }
+            writer.write(line);
+            writer.write('\n');
+        }
+
+        void sync() throws IOException {
+            if (writer != null) {
+                writer.flush();
+                out.getChannel().force(true);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.flush();
+                gzip.finish(); // Trailer
+                out.getChannel().force(true);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.creditrisk.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * EVENT-DRIVEN OUTBOX WAKEUP
+ * ==========================
+ *
+ * Polling alone means a fresh outbox row can wait up to one poll interval (5s)
+ * before it is published. Polling faster just hammers the database.
+ *
+ * Instead, the publisher is nudged as soon as an outbox row is committed:
+ * 1. LOCAL: After the writing transaction commits, append the row to this node's
+ *    change stream (OutboxChangeStream), which publishes it by primary key
+ * 2. If the stream is disabled or full: wake this node's publisher for the bucket,
+ *    and publish a Redis pub/sub message so other nodes wake up too
+ *    (the bucket may be leased by another instance)
+ *
+ * The scheduled poll in OutboxEventPublisher stays as a FALLBACK for missed
+ * nudges (Redis down, node restart, etc.), so no event can get stuck.
+ *
+ * Message format: "{nodeId}:{bucket}" - nodes ignore their own messages.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxWakeupNotifier {
+
+    private static final String WAKEUP_TOPIC = "outbox-wakeup";
+
+    private final OutboxEventPublisher outboxEventPublisher;
+    private final OutboxChangeStream outboxChangeStream;
+    private final RedissonClient redissonClient;
+
+    // Identifies this JVM, so we don't react to our own pub/sub messages
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private RTopic wakeupTopic;
+    private int listenerId;
+
+    @PostConstruct
+    public void subscribe() {
+        wakeupTopic = redissonClient.getTopic(WAKEUP_TOPIC, StringCodec.INSTANCE);
+        listenerId = wakeupTopic.addListener(String.class, (channel, message) -> onRemoteWakeup(message));
+        log.info("Subscribed to outbox wakeup topic as node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (wakeupTopic != null) {
+            wakeupTopic.removeListener(listenerId);
+        }
+    }
+
+    /**
+     * Called once the transaction that wrote the outbox row has COMMITTED.
+     * Never called on rollback - there is nothing to publish then.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOutboxEventSaved(OutboxEventSaved event) {
+        if (outboxChangeStream.append(event)) {
+            return; // Relayed by primary key, no scan and no broadcast needed
+        }
+
+        int bucket = event.partitionBucket();
+        outboxEventPublisher.requestPublish(bucket);
+
+        try {
+            wakeupTopic.publishAsync(nodeId + ":" + bucket);
+        } catch (Exception e) {
+            // Not critical - other nodes still pick the event up on their next poll
+            log.warn("Failed to broadcast outbox wakeup for bucket {}: {}", bucket, e.getMessage());
+        }
+    }
+
+    private void onRemoteWakeup(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            return; // Malformed or our own message
+        }
+
+        try {
+            outboxEventPublisher.requestPublish(Integer.parseInt(message.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed outbox wakeup message: {}", message);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.creditrisk.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MINIMAL CIRCUIT BREAKER FOR REDIS CALLS
+ * =======================================
+ *
+ * States:
+ * - CLOSED:    Redis is healthy, every call goes to Redis
+ * - OPEN:      failureThreshold calls in a row failed - skip Redis for openMillis
+ *              (callers use their fallback immediately instead of waiting for timeouts)
+ * - HALF_OPEN: openMillis passed - let ONE trial call through;
+ *              success -> CLOSED, failure -> OPEN again
+ *
+ * Without a breaker, every event during an outage waits for the Redis command
+ * timeout (3s) before falling back - the consumers stall.
+ *
+ * Thread-safe (state changes are synchronized, reads are volatile).
+ */
+@Slf4j
+class RedisCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+
+    RedisCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return true if the caller may try Redis now
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            log.info("Redis circuit breaker HALF_OPEN, trying Redis again");
+            return true; // The single trial call
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this success closed a previously open breaker (Redis recovered)
+     */
+    synchronized boolean onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            log.info("Redis circuit breaker CLOSED, Redis is back");
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            log.warn("Redis circuit breaker OPEN after {} failures, using fallback for {}ms",
+                    consecutiveFailures, openMillis);
+        }
+    }
+
+    State state() {
+        return state;
+    }
+}
@@ -0,0 +1,342 @@
+package com.creditrisk.service;
+
+import com.creditrisk.repository.ApplicationScoringRow;
+import com.creditrisk.repository.CreditApplicationRepository;
+import com.creditrisk.scoring.CompiledRiskRules;
+import com.creditrisk.scoring.RiskRuleStore;
+import com.creditrisk.scoring.RiskScoringEngine;
+import com.creditrisk.scoring.ScoringColumns;
+import com.creditrisk.scoring.model.RiskModelInput;
+import com.creditrisk.scoring.model.RiskModelScorer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * BULK RE-SCORING OF STORED APPLICATIONS
+ * ======================================
+ *
+ * When the risk rules change, every stored application needs a new assessment.
+ * Replaying events through RiskAssessmentConsumer does that one record, one
+ * transaction and one bureau call at a time. This job works on the table directly:
+ *
+ * 1. READ a chunk (keyset pagination on applicationId, only the 4 scoring columns)
+ * 2. Fill COLUMNAR arrays (ScoringColumns: int[] score, long[] cents, ...)
+ * 3. SCORE the chunk in parallel (RiskScoringEngine.scoreAll, ForkJoin common pool);
+ *    with a risk model active, the score comes from ONE predict() call per chunk
+ *    (RiskModelScorer), as in RiskAssessmentConsumer
+ * 4. WRITE the new RiskAssessment rows with ONE JDBC batch insert, in one short transaction
+ *
+ * Every chunk uses the SAME rule version (pinned when the job starts), so a hot swap
+ * in the middle of a run can't leave the table scored with two different policies.
+ *
+ * New assessments are ADDED (the audit trail keeps the old ones); readers take the
+ * latest. Decisions are not re-made and no events are published - that is a
+ * separate, deliberate step after reviewing the new scores.
+ *
+ * Rows that can't be scored (no income with a non-critical credit score) are
+ * counted as skipped, with one log line per chunk; the job goes on.
+ *
+ * Only one run at a time, across instances (Redisson lock), on a background thread.
+ * Progress (rows, rows/s, current position) is available while it runs.
+ *
+ * Configuration (application.yml, rescoring.*):
+ * - chunk-size: Rows read, scored and inserted per transaction
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RescoringService {
+
+    private static final String LOCK_NAME = "risk-rescoring-lock";
+
+    private static final String INSERT_ASSESSMENT_SQL =
+            "INSERT INTO risk_assessments (assessment_id, application_id, risk_level, risk_score, "
+            + "assessment_notes, assessed_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final CreditApplicationRepository applicationRepository;
+    private final RiskScoringEngine riskScoringEngine;
+    private final RiskRuleStore riskRuleStore;
+    private final RiskModelScorer riskModelScorer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedissonClient redissonClient;
+    private final CacheManager cacheManager;
+
+    @Value("${rescoring.chunk-size:10000}")
+    private int chunkSize;
+
+    private final ExecutorService jobThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "risk-rescoring");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<RescoringJob> currentJob = new AtomicReference<>();
+
+    @PreDestroy
+    public void stop() {
+        jobThread.shutdownNow();
+    }
+
+    /**
+     * Start a re-scoring run in the background.
+     *
+     * @return Progress of the new run, or of the run already in progress on this instance
+     */
+    public RescoringProgress start() {
+        RescoringJob job = new RescoringJob(UUID.randomUUID().toString(), riskRuleStore.current());
+        RescoringJob running = currentJob.get();
+        if (running != null && running.isRunning()) {
+            return running.progress();
+        }
+        if (!currentJob.compareAndSet(running, job)) {
+            return currentJob.get().progress(); // Started concurrently
+        }
+
+        jobThread.execute(() -> run(job));
+        return job.progress();
+    }
+
+    /**
+     * @return Progress of the current or last run on this instance
+     */
+    public Optional<RescoringProgress> progress() {
+        return Optional.ofNullable(currentJob.get()).map(RescoringJob::progress);
+    }
+
+    private void run(RescoringJob job) {
+        RLock lock = redissonClient.getLock(LOCK_NAME);
+        if (!lock.tryLock()) {
+            job.fail("Re-scoring already running on another instance");
+            log.warn("Re-scoring {} not started: already running on another instance", job.jobId);
+            return;
+        }
+
+        log.info("Re-scoring {} started with risk rules version {}", job.jobId, job.rules.version());
+        try {
+            rescoreAll(job);
+            job.complete();
+            log.info("Re-scoring {} completed: {} rows scored, {} skipped in {}ms ({} rows/s)",
+                    job.jobId, job.scored, job.skipped, job.elapsedMillis(), job.progress().rowsPerSecond());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            log.error("Re-scoring {} failed after {} rows (last applicationId {})",
+                    job.jobId, job.scored, job.lastApplicationId, e);
+        } finally {
+            // Readers cache "the" assessment per application: drop the old ones
+            Cache assessments = cacheManager.getCache("assessments");
+            if (assessments != null) {
+                assessments.clear();
+            }
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Chunk after chunk until the table is exhausted.
+     */
+    private void rescoreAll(RescoringJob job) {
+        ScoringColumns columns = new ScoringColumns(chunkSize);
+        String[] applicationIds = new String[chunkSize];
+
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Re-scoring interrupted (shutdown)");
+            }
+
+            List<ApplicationScoringRow> rows = applicationRepository.findScoringRowsAfter(
+                    job.lastApplicationId, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            columns.clear();
+            for (ApplicationScoringRow row : rows) {
+                int index = columns.add(
+                        row.creditScore() != null ? row.creditScore() : RiskScoringEngine.NO_CREDIT_SCORE,
+                        RiskScoringEngine.toCentsOrMissing(row.requestedAmount()),
+                        RiskScoringEngine.toCentsOrMissing(row.annualIncome()));
+                applicationIds[index] = row.applicationId();
+            }
+
+            riskScoringEngine.scoreAll(job.rules, columns);
+            // Same score as the consumer: the model's probability of default when a model is active
+            double[] probabilities = riskModelScorer.isEnabled()
+                    ? riskModelScorer.predict(rows.stream()
+                            .map(row -> new RiskModelInput(row.creditScore(), row.requestedAmount(), row.annualIncome()))
+                            .toList())
+                    : null;
+
+            int inserted = transactionTemplate.execute(
+                    status -> insertAssessments(job, columns, applicationIds, probabilities));
+            job.chunkDone(inserted, columns.size() - inserted, rows.get(rows.size() - 1).applicationId());
+            log.debug("Re-scoring {}: {} rows scored so far", job.jobId, job.scored);
+
+            if (rows.size() < chunkSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * One JDBC batch insert for the scored rows of the chunk.
+     *
+     * @param probabilities Model probability of default per row, or null without a model
+     * @return Rows inserted (failed rows are skipped)
+     */
+    private int insertAssessments(RescoringJob job, ScoringColumns columns, String[] applicationIds,
+                                  double[] probabilities) {
+        int[] scoredRows = new int[columns.size()];
+        int count = 0;
+        String firstSkipped = null;
+        for (int row = 0; row < columns.size(); row++) {
+            if (!columns.failed(row)) {
+                scoredRows[count++] = row;
+            } else if (firstSkipped == null) {
+                firstSkipped = applicationIds[row];
+            }
+        }
+        if (firstSkipped != null) {
+            // One line per chunk, not per row: a bulk run can skip thousands
+            log.warn("Re-scoring {}: skipped {} applications without usable income in this chunk (first: {})",
+                    job.jobId, columns.size() - count, firstSkipped);
+        }
+
+        int batchSize = count;
+        Timestamp assessedAt = Timestamp.from(Instant.now());
+        String notes = "Re-scored with risk rules version " + job.rules.version();
+
+        jdbcTemplate.batchUpdate(INSERT_ASSESSMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                int row = scoredRows[i];
+                ps.setString(1, UUID.randomUUID().toString());
+                ps.setString(2, applicationIds[row]);
+                ps.setString(3, columns.level(row).name());
+                if (probabilities != null) {
+                    ps.setBigDecimal(4, RiskModelScorer.riskScore(probabilities[row]));
+                    ps.setString(5, notes + riskModelScorer.notes(probabilities[row]));
+                } else {
+                    ps.setBigDecimal(4, columns.creditScore(row) == RiskScoringEngine.NO_CREDIT_SCORE
+                            ? RiskScoringEngine.NO_CREDIT_SCORE_RISK_SCORE
+                            : BigDecimal.valueOf(columns.scoreHundredths(row), 2));
+                    ps.setString(5, notes);
+                }
+                ps.setTimestamp(6, assessedAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchSize;
+            }
+        });
+        return batchSize;
+    }
+
+    /**
+     * Progress snapshot of a re-scoring run.
+     *
+     * @param state RUNNING, COMPLETED or FAILED
+     * @param rowsPerSecond Average throughput since the start
+     */
+    public record RescoringProgress(
+            String jobId,
+            String state,
+            long rulesVersion,
+            long rowsScored,
+            long rowsSkipped,
+            String lastApplicationId,
+            Instant startedAt,
+            Instant finishedAt,
+            long elapsedMillis,
+            long rowsPerSecond,
+            String error
+    ) {
+    }
+
+    /**
+     * State of one run. Written by the job thread only, read by the progress endpoint.
+     */
+    private static final class RescoringJob {
+
+        private final String jobId;
+        private final CompiledRiskRules rules;
+        private final Instant startedAt = Instant.now();
+        private final long startedNanos = System.nanoTime();
+
+        private volatile String state = "RUNNING";
+        private volatile long scored;
+        private volatile long skipped;
+        private volatile String lastApplicationId = "";
+        private volatile Instant finishedAt;
+        private volatile long finishedNanos;
+        private volatile String error;
+
+        private RescoringJob(String jobId, CompiledRiskRules rules) {
+            this.jobId = jobId;
+            this.rules = rules;
+        }
+
+        boolean isRunning() {
+            return "RUNNING".equals(state);
+        }
+
+        void chunkDone(long chunkScored, long chunkSkipped, String lastId) {
+            scored += chunkScored;
+            skipped += chunkSkipped;
+            lastApplicationId = lastId;
+        }
+
+        void complete() {
+            finish("COMPLETED", null);
+        }
+
+        void fail(String message) {
+            finish("FAILED", message);
+        }
+
+        private void finish(String finalState, String message) {
+            finishedNanos = System.nanoTime();
+            finishedAt = Instant.now();
+            error = message;
+            state = finalState;
+        }
+
+        long elapsedMillis() {
+            long end = finishedAt != null ? finishedNanos : System.nanoTime();
+            return (end - startedNanos) / 1_000_000;
+        }
+
+        RescoringProgress progress() {
+            long elapsed = elapsedMillis();
+            long rowsPerSecond = elapsed > 0 ? scored * 1000 / elapsed : 0;
+            return new RescoringProgress(jobId, state, rules.version(), scored, skipped, lastApplicationId,
+                    startedAt, finishedAt, elapsed, rowsPerSecond, error);
+        }
+    }
+}
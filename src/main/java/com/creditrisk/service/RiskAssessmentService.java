@@ -28,6 +28,8 @@ import java.util.Optional;
  * worrying about stale data.
  *
  * No @CacheEvict needed - entries naturally expire after 1 hour.
+ * (Exception: a bulk re-score adds NEWER assessments, so RescoringService clears
+ * the cache when it finishes.)
  *
  * PERFORMANCE IMPACT:
  * ===================
@@ -51,11 +53,11 @@ public class RiskAssessmentService {
      * 3. After 1 hour: TTL expires, fetch from database again
      *
      * @param applicationId The application ID
-     * @return Optional containing the risk assessment if found
+     * @return Optional containing the latest risk assessment if found
      */
     @Cacheable(value = "assessments", key = "#applicationId")
     public Optional<RiskAssessment> getByApplicationId(String applicationId) {
         log.debug("Cache miss - fetching risk assessment from database: {}", applicationId);
-        return riskAssessmentRepository.findByApplicationId(applicationId);
+        return riskAssessmentRepository.findFirstByApplicationIdOrderByAssessedAtDesc(applicationId);
     }
 }
@@ -0,0 +1,77 @@
+package com.creditrisk.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * OUTBOX SCANS USE THEIR INDEXES
+ * ==============================
+ *
+ * Each outbox scan has a composite index on OutboxEvent built for it. This checks
+ * the H2 plan of the SQL the repository really sends (captured by Hibernate, see
+ * OutboxQueryPlans), so changing a query or an index without the other fails here.
+ */
+@DataJpaTest
+@Import(OutboxQueryPlans.Config.class)
+class OutboxEventRepositoryPlanTest {
+
+    @Autowired
+    private OutboxEventRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxQueryPlans.RecordingInspector inspector;
+
+    @BeforeEach
+    void seed() {
+        OutboxQueryPlans.seed(jdbcTemplate, 1, 5_000, 100);
+    }
+
+    @Test
+    void publisherPollUsesThePendingIndex() {
+        assertPlanUses("idx_outbox_pending", () ->
+                repository.findUnpublishedEventsInBucketAfter(3, 0L, Instant.now(), 100));
+    }
+
+    @Test
+    void stuckEventCountUsesThePublishedCreatedIndex() {
+        assertPlanUses("idx_outbox_published_created", () ->
+                repository.countByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBefore(
+                        Instant.now().minus(Duration.ofMinutes(5))));
+    }
+
+    @Test
+    void retentionScanUsesThePublishedAtIndex() {
+        assertPlanUses("idx_published_at", () ->
+                repository.findPublishedIdsBefore(Instant.now().minus(Duration.ofDays(7)), PageRequest.of(0, 1000)));
+    }
+
+    @Test
+    void orderingCheckUsesTheAggregateIndex() {
+        assertPlanUses("idx_outbox_aggregate", () ->
+                repository.findBlockedAggregates(List.of("app-7", "app-8"), Instant.now()));
+    }
+
+    private void assertPlanUses(String index, Runnable repositoryCall) {
+        String sql = inspector.capture(repositoryCall);
+        String plan = OutboxQueryPlans.explain(jdbcTemplate, sql);
+
+        // H2 names the chosen index in the plan, e.g. /* PUBLIC.IDX_OUTBOX_PENDING: ... */
+        assertTrue(plan.toUpperCase(Locale.ROOT).contains(index.toUpperCase(Locale.ROOT)),
+                () -> "expected " + index + " in the plan of\n" + sql + "\n" + plan);
+    }
+}
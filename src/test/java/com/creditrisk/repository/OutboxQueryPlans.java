@@ -0,0 +1,121 @@
+package com.creditrisk.repository;
+
+import com.creditrisk.config.KafkaTopics;
+import com.creditrisk.model.OutboxEvent;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * QUERY PLANS OF THE REAL REPOSITORY QUERIES
+ * ==========================================
+ *
+ * Shared by OutboxEventRepositoryPlanTest and OutboxScanBenchmark.
+ *
+ * A StatementInspector records the SQL Hibernate actually sends for a repository
+ * call (native or derived), and explain() runs H2's EXPLAIN on exactly that SQL -
+ * so there is no hand-written copy of a query that could drift from the repository.
+ */
+final class OutboxQueryPlans {
+
+    private OutboxQueryPlans() {
+    }
+
+    /**
+     * Records every SQL statement Hibernate prepares.
+     */
+    static final class RecordingInspector implements StatementInspector {
+
+        private final List<String> statements = new ArrayList<>();
+
+        @Override
+        public synchronized String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        /**
+         * Run a repository call and return the single SQL statement it sent.
+         */
+        synchronized String capture(Runnable repositoryCall) {
+            statements.clear();
+            repositoryCall.run();
+            if (statements.size() != 1) {
+                throw new IllegalStateException("Expected one statement, got " + statements);
+            }
+            return statements.get(0);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingInspector recordingInspector() {
+            return new RecordingInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(RecordingInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    /**
+     * EXPLAIN a captured statement. The plan doesn't depend on the parameter values,
+     * so every parameter gets a placeholder value of its type.
+     */
+    static String explain(JdbcTemplate jdbcTemplate, String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                ParameterMetaData parameters = statement.getParameterMetaData();
+                for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                    switch (parameters.getParameterType(i)) {
+                        case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE ->
+                                statement.setTimestamp(i, Timestamp.from(Instant.now()));
+                        case Types.BOOLEAN -> statement.setBoolean(i, false);
+                        default -> statement.setLong(i, 1L);
+                    }
+                }
+                StringJoiner plan = new StringJoiner("\n");
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        plan.add(rows.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    /**
+     * Insert rows [from, to] directly with one INSERT ... SELECT (much faster than
+     * going through JPA). Every pendingEvery-th row is unpublished; created_at and
+     * published_at are spread over the last 30 days.
+     */
+    static void seed(JdbcTemplate jdbcTemplate, long from, long to, int pendingEvery) {
+        String age = "DATEADD('SECOND', -MOD(X, 2592000), CURRENT_TIMESTAMP)";
+        String published = "MOD(X, " + pendingEvery + ") <> 0";
+        jdbcTemplate.update("INSERT INTO outbox_events (event_id, event_type, aggregate_id, partition_bucket, "
+                + "payload, topic, published, created_at, published_at, retry_count) "
+                + "SELECT 'evt-' || X, 'CreditApplicationSubmitted', 'app-' || X, "
+                + "MOD(X, " + OutboxEvent.PARTITION_COUNT + "), '{}', "
+                + "'" + KafkaTopics.CREDIT_APPLICATION_SUBMITTED + "', " + published + ", " + age + ", "
+                + "CASE WHEN " + published + " THEN " + age + " END, 0 "
+                + "FROM SYSTEM_RANGE(" + from + ", " + to + ")");
+    }
+}
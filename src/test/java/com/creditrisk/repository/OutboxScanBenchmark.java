@@ -0,0 +1,109 @@
+package com.creditrisk.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * REPEATABLE OUTBOX SCAN BENCHMARK
+ * ================================
+ *
+ * Seeds an H2 file database with N outbox rows (1 in 1,000 unpublished, timestamps
+ * spread over 30 days) and times the real repository scans:
+ * - poll:      findUnpublishedEventsInBucketAfter (publisher, one bucket, 100 rows)
+ * - stuck:     countByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBefore (monitor)
+ * - retention: findPublishedIdsBefore (one 1,000-id chunk)
+ *
+ * It runs twice: with the current composite indexes, then with the indexes they
+ * replaced (idx_published, idx_created_at) - the before/after of the index change.
+ * For each query it prints the H2 plan and the median of the timed runs.
+ * Not a JMH harness: good for comparing the two index sets on one machine.
+ *
+ * Skipped unless outbox.benchmark.rows is set. Run (from the project root):
+ *   mvn test -Dtest=OutboxScanBenchmark -Doutbox.benchmark.rows=10000000
+ *
+ * Seeding 10M rows takes a few minutes and a few GB of disk in target/.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/outbox-benchmark",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Seed in committed chunks
+@Import(OutboxQueryPlans.Config.class)
+@EnabledIfSystemProperty(named = "outbox.benchmark.rows", matches = "\\d+")
+class OutboxScanBenchmark {
+
+    private static final long SEED_CHUNK = 1_000_000L;
+    private static final int PENDING_EVERY = 1_000;
+    private static final int WARM_UP_RUNS = 20;
+    private static final int TIMED_RUNS = 50;
+
+    @Autowired
+    private OutboxEventRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxQueryPlans.RecordingInspector inspector;
+
+    @Test
+    void compareIndexSets() {
+        long rows = Long.getLong("outbox.benchmark.rows");
+        long started = System.nanoTime();
+        for (long from = 1; from <= rows; from += SEED_CHUNK) {
+            OutboxQueryPlans.seed(jdbcTemplate, from, Math.min(rows, from + SEED_CHUNK - 1), PENDING_EVERY);
+        }
+        jdbcTemplate.execute("ANALYZE");
+        System.out.printf("seeded %,d rows in %d s%n", rows, Duration.ofNanos(System.nanoTime() - started).toSeconds());
+
+        System.out.println("== current indexes ==");
+        measureAll();
+
+        jdbcTemplate.execute("DROP INDEX idx_outbox_pending");
+        jdbcTemplate.execute("DROP INDEX idx_outbox_published_created");
+        jdbcTemplate.execute("DROP INDEX idx_published_at");
+        jdbcTemplate.execute("CREATE INDEX idx_published ON outbox_events (published)");
+        jdbcTemplate.execute("CREATE INDEX idx_created_at ON outbox_events (created_at)");
+        jdbcTemplate.execute("ANALYZE");
+
+        System.out.println("== replaced indexes (idx_published, idx_created_at) ==");
+        measureAll();
+    }
+
+    private void measureAll() {
+        measure("poll", () -> repository.findUnpublishedEventsInBucketAfter(3, 0L, Instant.now(), 100));
+        measure("stuck", () -> repository.countByPublishedFalseAndDeadLetteredAtIsNullAndCreatedAtBefore(
+                Instant.now().minus(Duration.ofMinutes(5))));
+        measure("retention", () -> repository.findPublishedIdsBefore(
+                Instant.now().minus(Duration.ofDays(7)), PageRequest.of(0, 1000)));
+    }
+
+    private void measure(String name, Runnable query) {
+        String plan = OutboxQueryPlans.explain(jdbcTemplate, inspector.capture(query));
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            query.run();
+        }
+        long[] micros = new long[TIMED_RUNS];
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+        System.out.printf("%-10s median %,8d us  (p90 %,8d us)%n  %s%n",
+                name, micros[TIMED_RUNS / 2], micros[TIMED_RUNS * 9 / 10], plan.replace("\n", "\n  "));
+    }
+}
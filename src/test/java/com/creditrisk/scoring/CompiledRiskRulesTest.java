@@ -0,0 +1,119 @@
+package com.creditrisk.scoring;
+
+import com.creditrisk.model.RiskLevel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RULE FILE VALIDATION
+ * ====================
+ *
+ * A rule file is hot-swapped into running consumers, so anything that is merely
+ * parseable - a missing threshold that Jackson would turn into 0, rows in the wrong
+ * order - must be rejected, and the running version must stay in force.
+ */
+class CompiledRiskRulesTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String VALID = """
+            {
+              "version": %d,
+              "criticalBelowCreditScore": 550,
+              "levels": [
+                { "level": "LOW", "minCreditScore": 750, "maxDebtToIncome": 0.30 },
+                { "level": "MEDIUM", "minCreditScore": 650, "maxDebtToIncome": 0.50 }
+              ],
+              "defaultLevel": "HIGH",
+              "decisions": { "LOW": "APPROVED", "MEDIUM": "MANUAL_REVIEW", "HIGH": "REJECTED", "CRITICAL": "REJECTED" }
+            }
+            """;
+
+    @Test
+    void compilesAValidFile() throws Exception {
+        CompiledRiskRules rules = compile(VALID.formatted(1));
+
+        assertEquals(1, rules.version());
+        assertTrue(rules.isCritical(549));
+        assertEquals(RiskLevel.LOW, rules.levelFor(750, 29));
+        assertEquals(RiskLevel.MEDIUM, rules.levelFor(700, 29));
+        assertEquals(RiskLevel.HIGH, rules.levelFor(640, 10));
+    }
+
+    @Test
+    void rejectsMissingFields() {
+        assertRejected(VALID.formatted(2).replace("\"criticalBelowCreditScore\": 550,", ""),
+                "criticalBelowCreditScore");
+        assertRejected(VALID.formatted(2).replace("\"minCreditScore\": 650, ", ""), "levels[1].minCreditScore");
+        assertRejected(VALID.formatted(2).replace("\"maxDebtToIncome\": 0.30 ", ""), "levels[0].maxDebtToIncome");
+        assertRejected(VALID.formatted(2).replace("\"version\": 2,", ""), "version");
+    }
+
+    @Test
+    void rejectsNonMonotonicThresholds() {
+        // Credit score threshold goes up: the MEDIUM row would catch what LOW should
+        assertRejected(VALID.formatted(2).replace("\"minCreditScore\": 650", "\"minCreditScore\": 800"),
+                "minCreditScore must not increase");
+        // Ratio limit goes down
+        assertRejected(VALID.formatted(2).replace("0.50", "0.20"), "maxDebtToIncome must not decrease");
+        // Rows in the wrong severity order
+        assertRejected(VALID.formatted(2).replace("\"level\": \"MEDIUM\"", "\"level\": \"LOW\"")
+                .replace("\"level\": \"LOW\", \"minCreditScore\": 750", "\"level\": \"MEDIUM\", \"minCreditScore\": 750"),
+                "level must not get less severe");
+        // Row below the critical cut-off can never match
+        assertRejected(VALID.formatted(2).replace("\"minCreditScore\": 650", "\"minCreditScore\": 500"),
+                "below criticalBelowCreditScore");
+        // Fallback must not be safer than the last row
+        assertRejected(VALID.formatted(2).replace("\"defaultLevel\": \"HIGH\"", "\"defaultLevel\": \"LOW\""),
+                "less severe than the last level");
+    }
+
+    @Test
+    void reloadKeepsTheRunningVersionWhenTheNewFileIsInvalid() {
+        MutableResource file = new MutableResource(VALID.formatted(1));
+        RiskRuleStore store = new RiskRuleStore(MAPPER, file);
+        store.init();
+
+        file.content = VALID.formatted(2).replace("\"minCreditScore\": 750, ", "");
+        store.reload();
+        assertEquals(1, store.current().version());
+
+        file.content = VALID.formatted(3);
+        store.reload();
+        assertEquals(3, store.current().version());
+    }
+
+    private static CompiledRiskRules compile(String json) throws Exception {
+        return CompiledRiskRules.compile(MAPPER.readValue(json, RiskRuleDefinition.class));
+    }
+
+    private static void assertRejected(String json, String expectedMessagePart) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compile(json));
+        assertTrue(e.getMessage().contains(expectedMessagePart),
+                () -> "expected '" + expectedMessagePart + "' in: " + e.getMessage());
+    }
+
+    private static final class MutableResource extends ByteArrayResource {
+
+        private volatile String content;
+
+        MutableResource(String content) {
+            super(new byte[0]);
+            this.content = content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.creditrisk.scoring;
+
+import com.creditrisk.model.RiskLevel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The BigDecimal risk rules as they were before RiskScoringEngine (golden reference).
+ *
+ * Copied from the old RiskAssessmentConsumer.calculateRiskLevel / calculateRiskScore;
+ * only the deprecated BigDecimal.ROUND_HALF_UP became RoundingMode.HALF_UP (same mode).
+ * Do not "fix" this class - it is what the engine is compared against.
+ */
+final class LegacyRiskScoring {
+
+    private LegacyRiskScoring() {
+    }
+
+    static RiskLevel riskLevel(Integer creditScore, BigDecimal annualIncome, BigDecimal requestedAmount) {
+        if (creditScore == null || creditScore < 550) {
+            return RiskLevel.CRITICAL;
+        }
+
+        BigDecimal debtToIncomeRatio = requestedAmount.divide(annualIncome, 2, RoundingMode.HALF_UP);
+
+        if (creditScore >= 750 && debtToIncomeRatio.compareTo(BigDecimal.valueOf(0.3)) < 0) {
+            return RiskLevel.LOW;
+        } else if (creditScore >= 650 && debtToIncomeRatio.compareTo(BigDecimal.valueOf(0.5)) < 0) {
+            return RiskLevel.MEDIUM;
+        } else {
+            return RiskLevel.HIGH;
+        }
+    }
+
+    static BigDecimal riskScore(Integer creditScore) {
+        if (creditScore == null) {
+            return BigDecimal.valueOf(80);
+        }
+
+        return BigDecimal.valueOf(850 - creditScore)
+                .divide(BigDecimal.valueOf(850), 2, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+    }
+}
@@ -0,0 +1,140 @@
+package com.creditrisk.scoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.ClassPathResource;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * REPEATABLE SCORING MICRO-BENCHMARK
+ * ==================================
+ *
+ * Compares, per application:
+ * - legacy:    the old BigDecimal rules (LegacyRiskScoring)
+ * - boundary:  what the consumer does - BigDecimal -> cents once, primitive level, BigDecimal score
+ * - primitive: riskLevel(int, long, long) + riskScoreHundredths() on cents
+ * - bulk:      scoreAll() over a 100,000-row ScoringColumns chunk (re-scoring job)
+ *
+ * and prints nanoseconds AND bytes allocated per application for every round.
+ * Repeatable: fixed random seed, fixed data set, fixed rounds (warm-up rounds are
+ * printed too, so JIT effects stay visible). Not a JMH harness - numbers are good for
+ * comparing the variants on one machine, not as absolute figures.
+ *
+ * Run (from the project root):
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp "target/test-classes:target/classes:$(cat target/cp.txt)" \
+ *        com.creditrisk.scoring.RiskScoringBenchmark [rounds] [opsPerRound]
+ */
+public final class RiskScoringBenchmark {
+
+    private static final int DATA_SET_SIZE = 1024;
+    private static final int BULK_ROWS = 100_000;
+    private static final long SEED = 42L;
+
+    private static volatile long blackhole;
+
+    private RiskScoringBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int opsPerRound = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        RiskRuleStore rules = new RiskRuleStore(new ObjectMapper(), new ClassPathResource("risk-rules.json"));
+        rules.init();
+        RiskScoringEngine engine = new RiskScoringEngine(rules);
+
+        Random random = new Random(SEED);
+        int[] creditScores = new int[DATA_SET_SIZE];
+        long[] requestedCents = new long[DATA_SET_SIZE];
+        long[] incomeCents = new long[DATA_SET_SIZE];
+        BigDecimal[] requested = new BigDecimal[DATA_SET_SIZE];
+        BigDecimal[] income = new BigDecimal[DATA_SET_SIZE];
+        for (int i = 0; i < DATA_SET_SIZE; i++) {
+            creditScores[i] = 500 + random.nextInt(350);
+            incomeCents[i] = 2_000_000 + random.nextInt(20_000_000);
+            requestedCents[i] = 100_000 + random.nextInt(10_000_000);
+            requested[i] = BigDecimal.valueOf(requestedCents[i], 2);
+            income[i] = BigDecimal.valueOf(incomeCents[i], 2);
+        }
+
+        ScoringColumns columns = new ScoringColumns(BULK_ROWS);
+        for (int i = 0; i < BULK_ROWS; i++) {
+            int k = i % DATA_SET_SIZE;
+            columns.add(creditScores[k], requestedCents[k], incomeCents[k]);
+        }
+        int bulkChunks = Math.max(1, opsPerRound / BULK_ROWS);
+
+        System.out.printf("rounds=%d, ops/round=%d, allocation counter=%s%n",
+                rounds, opsPerRound, allocationMeasurementSupported() ? "on" : "unavailable");
+
+        for (int round = 1; round <= rounds; round++) {
+            measure(round, "legacy", opsPerRound, () -> {
+                long sink = 0;
+                for (int i = 0; i < opsPerRound; i++) {
+                    int k = i & (DATA_SET_SIZE - 1);
+                    sink += LegacyRiskScoring.riskLevel(creditScores[k], income[k], requested[k]).ordinal()
+                            + LegacyRiskScoring.riskScore(creditScores[k]).intValue();
+                }
+                return sink;
+            });
+            measure(round, "boundary", opsPerRound, () -> {
+                long sink = 0;
+                for (int i = 0; i < opsPerRound; i++) {
+                    int k = i & (DATA_SET_SIZE - 1);
+                    sink += engine.riskLevel(creditScores[k], RiskScoringEngine.toCentsOrMissing(requested[k]),
+                            RiskScoringEngine.toCentsOrMissing(income[k])).ordinal()
+                            + engine.riskScore(creditScores[k]).intValue();
+                }
+                return sink;
+            });
+            measure(round, "primitive", opsPerRound, () -> {
+                long sink = 0;
+                for (int i = 0; i < opsPerRound; i++) {
+                    int k = i & (DATA_SET_SIZE - 1);
+                    sink += engine.riskLevel(creditScores[k], requestedCents[k], incomeCents[k]).ordinal()
+                            + engine.riskScoreHundredths(creditScores[k]);
+                }
+                return sink;
+            });
+            measure(round, "bulk", bulkChunks * BULK_ROWS, () -> {
+                long sink = 0;
+                for (int chunk = 0; chunk < bulkChunks; chunk++) {
+                    engine.scoreAll(rules.current(), columns);
+                    sink += columns.scoreHundredths(chunk % BULK_ROWS);
+                }
+                return sink;
+            });
+        }
+    }
+
+    private static void measure(int round, String name, long ops, LongSupplier body) {
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        blackhole += body.getAsLong();
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+
+        // bulk allocates on pool threads too, which this thread's counter does not see
+        System.out.printf("round %2d  %-9s  %8.2f ns/op  %8.2f B/op%n",
+                round, name, (double) nanos / ops, bytesBefore < 0 ? Double.NaN : (double) bytes / ops);
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM can't tell.
+     */
+    static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    static boolean allocationMeasurementSupported() {
+        return allocatedBytes() >= 0;
+    }
+}
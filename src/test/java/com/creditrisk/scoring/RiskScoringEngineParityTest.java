@@ -0,0 +1,204 @@
+package com.creditrisk.scoring;
+
+import com.creditrisk.model.RiskLevel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * GOLDEN PARITY: FIXED-POINT ENGINE vs. THE OLD BIGDECIMAL RULES
+ * ==============================================================
+ *
+ * RiskScoringEngine must give the same level and the same stored score (value AND
+ * scale) as LegacyRiskScoring for every application with amounts in whole cents.
+ * The engine runs with the shipped risk-rules.json, which encodes the old thresholds.
+ *
+ * The sweep covers:
+ * - every credit score from 0 to 1000 (and a missing one)
+ * - incomes from 1 cent to 10 million, plus a negative one
+ * - requested amounts on and 1-2 cents around every debt-to-income tie
+ *   (0.295, 0.305, 0.495, 0.505 round HALF_UP onto or past a threshold)
+ * - a fixed-seed random sample of realistic applications
+ */
+class RiskScoringEngineParityTest {
+
+    private static final long[] INCOME_CENTS = {
+            1, 3, 7, 99, 100, 101, 1_000, 20_000, 12_345, 99_999, 100_000,
+            4_500_000, 7_777_777, 1_000_000_000L, -5_000_000
+    };
+
+    // Ratios in thousandths: the third decimal decides the HALF_UP rounding
+    private static final long[] DTI_THOUSANDTHS = {
+            0, 290, 294, 295, 296, 299, 300, 301, 304, 305, 306,
+            490, 494, 495, 496, 499, 500, 501, 504, 505, 506, 1_000, 2_500
+    };
+
+    private static final int CENT_OFFSET = 2;
+
+    private static RiskRuleStore rules;
+    private static RiskScoringEngine engine;
+
+    @BeforeAll
+    static void loadShippedRules() {
+        rules = new RiskRuleStore(new ObjectMapper(), new ClassPathResource("risk-rules.json"));
+        rules.init();
+        engine = new RiskScoringEngine(rules);
+    }
+
+    @Test
+    void riskScoreMatchesValueAndScaleForEveryCreditScore() {
+        assertEquals(LegacyRiskScoring.riskScore(null), engine.riskScore(null));
+        for (int creditScore = 0; creditScore <= 1000; creditScore++) {
+            // BigDecimal.equals also compares the scale (35.00 != 35)
+            assertEquals(LegacyRiskScoring.riskScore(creditScore), engine.riskScore(creditScore),
+                    "score for credit score " + creditScore);
+        }
+    }
+
+    @Test
+    void riskLevelMatchesAroundEveryDebtToIncomeTie() {
+        int cases = 0;
+        for (int creditScore = 0; creditScore <= 1000; creditScore++) {
+            for (long income : INCOME_CENTS) {
+                for (long thousandths : DTI_THOUSANDTHS) {
+                    long center = Math.floorDiv(income * thousandths, 1000);
+                    for (long requested = center - CENT_OFFSET; requested <= center + CENT_OFFSET; requested++) {
+                        assertSameLevel(creditScore, requested, income);
+                        cases++;
+                    }
+                }
+            }
+        }
+        assertTrue(cases > 1_000_000, "sweep too small: " + cases);
+    }
+
+    @Test
+    void riskLevelMatchesOnRandomApplications() {
+        Random random = new Random(20240521L);
+        for (int i = 0; i < 200_000; i++) {
+            int creditScore = 500 + random.nextInt(400);
+            long income = 1 + (long) (random.nextDouble() * 50_000_000_00L);
+            long requested = 1 + (long) (random.nextDouble() * income);
+            assertSameLevel(creditScore, requested, income);
+        }
+    }
+
+    @Test
+    void missingOrZeroIncomeBehavesLikeTheOldCode() {
+        BigDecimal requested = new BigDecimal("1000.00");
+
+        // A critical score never looks at the income
+        assertEquals(RiskLevel.CRITICAL, engineLevel(500, requested, null));
+        assertEquals(RiskLevel.CRITICAL, engineLevel(500, requested, BigDecimal.ZERO));
+        assertEquals(RiskLevel.CRITICAL, engineLevel(null, requested, null));
+
+        // Otherwise: the old code failed (NPE / division by zero), so must the engine
+        assertThrows(NullPointerException.class, () -> LegacyRiskScoring.riskLevel(700, null, requested));
+        assertThrows(IllegalArgumentException.class, () -> engineLevel(700, requested, null));
+        assertThrows(ArithmeticException.class, () -> LegacyRiskScoring.riskLevel(700, BigDecimal.ZERO, requested));
+        assertThrows(ArithmeticException.class, () -> engineLevel(700, requested, BigDecimal.ZERO));
+    }
+
+    @Test
+    void subCentAmountsAreRoundedHalfUpToCentsAtTheBoundary() {
+        assertEquals(1, RiskScoringEngine.toCents(new BigDecimal("0.005")));
+        assertEquals(0, RiskScoringEngine.toCents(new BigDecimal("0.0049")));
+        assertEquals(-1, RiskScoringEngine.toCents(new BigDecimal("-0.005")));
+        assertEquals(1235, RiskScoringEngine.toCents(new BigDecimal("12.345")));
+        assertEquals(1_500_000, RiskScoringEngine.toCents(new BigDecimal("15000")));
+        assertEquals(RiskScoringEngine.NO_AMOUNT, RiskScoringEngine.toCentsOrMissing(null));
+    }
+
+    @Test
+    void bulkScoringMatchesSingleApplicationScoring() {
+        Random random = new Random(7L);
+        ScoringColumns columns = new ScoringColumns(10_000);
+        for (int i = 0; i < columns.capacity(); i++) {
+            int creditScore = i % 97 == 0 ? RiskScoringEngine.NO_CREDIT_SCORE : 300 + random.nextInt(600);
+            long income = i % 89 == 0 ? 0 : 1 + random.nextInt(20_000_000);
+            columns.add(creditScore, 1 + random.nextInt(10_000_000), income);
+        }
+
+        // Above the parallel threshold: rows are split across the common pool
+        engine.scoreAll(rules.current(), columns);
+
+        for (int row = 0; row < columns.size(); row++) {
+            int creditScore = columns.creditScore(row);
+            long income = columns.incomeCents[row];
+            boolean critical = creditScore == RiskScoringEngine.NO_CREDIT_SCORE || creditScore < 550;
+            if (!critical && income == 0) {
+                assertTrue(columns.failed(row), "row " + row + " should fail");
+                continue;
+            }
+            assertEquals(engine.riskLevel(creditScore, columns.requestedCents[row], income), columns.level(row),
+                    "level of row " + row);
+            if (creditScore != RiskScoringEngine.NO_CREDIT_SCORE) {
+                assertEquals(engine.riskScoreHundredths(creditScore), columns.scoreHundredths(row),
+                        "score of row " + row);
+            }
+        }
+    }
+
+    @Test
+    void primitivePathDoesNotAllocate() {
+        assumeTrue(RiskScoringBenchmark.allocationMeasurementSupported(), "no per-thread allocation counter");
+
+        long[] requested = new long[1024];
+        long[] income = new long[1024];
+        int[] creditScores = new int[1024];
+        Random random = new Random(11L);
+        for (int i = 0; i < requested.length; i++) {
+            creditScores[i] = 550 + random.nextInt(300);
+            income[i] = 1 + random.nextInt(20_000_000);
+            requested[i] = 1 + random.nextInt(10_000_000);
+        }
+
+        long sink = 0;
+        for (int i = 0; i < 200_000; i++) {
+            int k = i & 1023;
+            sink += engine.riskLevel(creditScores[k], requested[k], income[k]).ordinal()
+                    + engine.riskScoreHundredths(creditScores[k]);
+        }
+
+        long before = RiskScoringBenchmark.allocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            int k = i & 1023;
+            sink += engine.riskLevel(creditScores[k], requested[k], income[k]).ordinal()
+                    + engine.riskScoreHundredths(creditScores[k]);
+        }
+        long allocated = RiskScoringBenchmark.allocatedBytes() - before;
+
+        // Anything per call would be >= 16 MB here; allow a few bytes of measurement noise
+        assertTrue(allocated < 16 * 1024, "primitive path allocated " + allocated + " bytes (sink " + sink + ")");
+    }
+
+    private static void assertSameLevel(int creditScore, long requestedCents, long incomeCents) {
+        BigDecimal requested = BigDecimal.valueOf(requestedCents, 2);
+        BigDecimal income = BigDecimal.valueOf(incomeCents, 2);
+
+        RiskLevel expected;
+        try {
+            expected = LegacyRiskScoring.riskLevel(creditScore, income, requested);
+        } catch (ArithmeticException e) {
+            assertThrows(ArithmeticException.class, () -> engineLevel(creditScore, requested, income));
+            return;
+        }
+        assertEquals(expected, engineLevel(creditScore, requested, income),
+                () -> "credit score " + creditScore + ", requested " + requested + ", income " + income);
+    }
+
+    // Same boundary conversion as RiskAssessmentConsumer.assess()
+    private static RiskLevel engineLevel(Integer creditScore, BigDecimal requested, BigDecimal income) {
+        return engine.riskLevel(creditScore != null ? creditScore : RiskScoringEngine.NO_CREDIT_SCORE,
+                RiskScoringEngine.toCentsOrMissing(requested), RiskScoringEngine.toCentsOrMissing(income));
+    }
+}
@@ -0,0 +1,122 @@
+package com.creditrisk.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CIRCUIT BREAKER RECOVERY THROUGH A COMPLETION
+ * =============================================
+ *
+ * The first Redis call after the OPEN period is the breaker's single HALF_OPEN
+ * trial. If that call is a completion (after-commit callback), its outcome must
+ * still be reported - otherwise the breaker stays HALF_OPEN, refuses Redis forever
+ * and the fallback claims are never replayed.
+ */
+class IdempotencyServiceBreakerTest {
+
+    private static final String TYPE = "CreditApplicationSubmitted";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ValueOperations<String, Object> valueOperations;
+    private FallbackIdempotencyStore fallbackStore;
+    private IdempotencyService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        fallbackStore = mock(FallbackIdempotencyStore.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(fallbackStore.claimsInWindow()).thenReturn(Map.of());
+
+        service = new IdempotencyService(redisTemplate, fallbackStore);
+        ReflectionTestUtils.setField(service, "fallbackEnabled", true);
+        ReflectionTestUtils.setField(service, "breakerFailureThreshold", 1);
+        ReflectionTestUtils.setField(service, "breakerOpenMs", 0L); // Next call is the trial call
+        ReflectionTestUtils.setField(service, "claimLeaseMs", 300_000L);
+        ReflectionTestUtils.setField(service, "storageMode", "standard");
+        service.init();
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void completionOnTheTrialCallClosesTheBreaker() {
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker().state());
+
+        // Redis fails the claim: breaker OPEN, the claim goes to the fallback store
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), any(), any());
+        assertEquals(IdempotencyService.AcquireResult.ACQUIRED,
+                service.claimForTransaction(TYPE, "app-1", "RiskAssessmentConsumer"));
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker().state());
+
+        // The commit callback is the first Redis call after the OPEN period
+        List<RedisCircuitBreaker.State> stateDuringSet = new ArrayList<>();
+        doAnswer(invocation -> {
+            stateDuringSet.add(breaker().state());
+            return null;
+        }).when(valueOperations).set(anyString(), any(), any(Duration.class));
+        commit();
+
+        assertEquals(List.of(RedisCircuitBreaker.State.HALF_OPEN), stateDuringSet);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker().state());
+        verify(fallbackStore, timeout(1000)).claimsInWindow(); // Outage claims replayed
+    }
+
+    @Test
+    void failedCompletionOnTheTrialCallReopensTheBreaker() {
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), any(), any());
+        service.claimForTransaction(TYPE, "app-2", "RiskAssessmentConsumer");
+
+        doThrow(new RedisConnectionFailureException("still down"))
+                .when(valueOperations).set(anyString(), any(), any(Duration.class));
+        commit();
+
+        // Back to OPEN (not stuck in HALF_OPEN): the next call is a new trial
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker().state());
+        verify(fallbackStore).complete(eq("idempotency:" + TYPE + ":app-2"), anyString());
+    }
+
+    private void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+    private RedisCircuitBreaker breaker() {
+        return (RedisCircuitBreaker) ReflectionTestUtils.getField(service, "circuitBreaker");
+    }
+}